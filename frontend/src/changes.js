@@ -0,0 +1,51 @@
+import axios from 'axios';
+
+const API = process.env.REACT_APP_API_URL || 'http://localhost:8080/api';
+
+// Loads the collections once, then keeps them current from /api/changes/stream. The cursor is taken
+// before load() runs, so a write committed while the collections load still arrives as a change; the
+// stream opens only once the promise load() returns has settled, so no change is applied to a list that
+// the initial response then overwrites. When the server answers with a resync event the cursor was too old: load again and start over.
+// Returns a function that closes the stream.
+export function followChanges(load, onChange) {
+  let source = null;
+  let stopped = false;
+
+  function start() {
+    axios.get(`${API}/changes`).then(r => {
+      if (stopped) return;
+      return Promise.resolve(load()).then(() => {
+        if (stopped) return;
+        source = new EventSource(`${API}/changes/stream?since=${r.data.next}`);
+        source.addEventListener('change', e => onChange(JSON.parse(e.data)));
+        source.addEventListener('resync', () => { source.close(); start(); });
+      });
+    }).catch(console.error);
+  }
+
+  start();
+  return () => { stopped = true; if (source) source.close(); };
+}
+
+// Applies one change to a list ordered by id; entities failing keep() are left out, as in the initial load
+export function applyChange(list, change, keep = () => true) {
+  const index = list.findIndex(item => item.id === change.id);
+  if (change.operation === 'DELETE' || !keep(change.data)) {
+    return index < 0 ? list : list.filter(item => item.id !== change.id);
+  }
+  if (index >= 0) {
+    const copy = list.slice();
+    copy[index] = change.data;
+    return copy;
+  }
+  return [...list, change.data].sort((a, b) => a.id - b.id);
+}
+
+// the response of our own write, applied right away instead of waiting for its change event
+export function saved(data) {
+  return { id: data.id, operation: 'UPDATE', data };
+}
+
+export function deleted(id) {
+  return { id, operation: 'DELETE' };
+}
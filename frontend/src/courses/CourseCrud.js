@@ -1,5 +1,6 @@
 import React, { useEffect, useState } from 'react';
 import axios from 'axios';
+import { applyChange, deleted, followChanges, saved } from '../changes';
 
 const API = process.env.REACT_APP_API_URL || 'http://localhost:8080/api';
 
@@ -14,14 +15,20 @@ export default function CourseCrud() {
   const [modalCourse, setModalCourse] = useState(null);
   const [modalForm, setModalForm] = useState({ id: null, name: '', teacherId: '', studentIds: [] });
 
-  useEffect(() => { fetchAll(); fetchPersons(); }, []);
+  // after the first load only what changed is fetched; person changes keep the selectors current
+  useEffect(() => followChanges(() => Promise.all([fetchAll(), fetchPersons()]), change => {
+    if (change.entity === 'Course') setCourses(list => applyChange(list, change));
+    else if (change.entity === 'Person') setPersons(list => applyChange(list, change));
+  }), []);
 
   function fetchAll() {
-    axios.get(`${API}/courses`).then(r => setCourses(r.data)).catch(e => setError(e.toString()));
+    return axios.get(`${API}/courses`).then(r => setCourses(r.data)).catch(e => setError(e.toString()));
   }
 
   function fetchPersons() {
-    axios.get(`${API}/persons`).then(r => setPersons(r.data)).catch(e => setError(e.toString()));
+    // only what the teacher and student selectors show
+    return axios.get(`${API}/persons`, { params: { fields: 'id,firstName,lastName,personType' } })
+      .then(r => setPersons(r.data)).catch(e => setError(e.toString()));
   }
 
   function submit(e) {
@@ -35,12 +42,12 @@ export default function CourseCrud() {
 
     if (form.id) {
       axios.put(`${API}/courses/${form.id}`, payload)
-        .then(() => { resetForm(); fetchAll(); })
-        .catch(err => setError(err?.response?.data || err.message));
+        .then(r => { resetForm(); setCourses(list => applyChange(list, saved(r.data))); })
+        .catch(err => setError(err?.response?.data?.detail || err?.response?.data || err.message));
     } else {
       axios.post(`${API}/courses`, payload)
-        .then(() => { resetForm(); fetchAll(); })
-        .catch(err => setError(err?.response?.data || err.message));
+        .then(r => { resetForm(); setCourses(list => applyChange(list, saved(r.data))); })
+        .catch(err => setError(err?.response?.data?.detail || err?.response?.data || err.message));
     }
   }
 
@@ -51,7 +58,7 @@ export default function CourseCrud() {
 
   function remove(id) {
     if (!window.confirm('Delete course?')) return;
-    axios.delete(`${API}/courses/${id}`).then(() => fetchAll()).catch(e => setError(e.toString()));
+    axios.delete(`${API}/courses/${id}`).then(() => setCourses(list => applyChange(list, deleted(id)))).catch(e => setError(e.toString()));
   }
 
   function toggleStudent(studentId) {
@@ -93,8 +100,8 @@ export default function CourseCrud() {
       studentIds: modalForm.studentIds || []
     };
     axios.put(`${API}/courses/${modalForm.id}`, payload)
-      .then(() => { closeModal(); fetchAll(); })
-      .catch(err => setError(err?.response?.data || err.message));
+      .then(r => { closeModal(); setCourses(list => applyChange(list, saved(r.data))); })
+      .catch(err => setError(err?.response?.data?.detail || err?.response?.data || err.message));
   }
 
   function toggleModalStudent(studentId) {
@@ -1,5 +1,6 @@
 import React, { useEffect, useState } from 'react';
 import axios from 'axios';
+import { applyChange, deleted, followChanges, saved } from '../changes';
 
 const API = process.env.REACT_APP_API_URL || 'http://localhost:8080/api';
 
@@ -7,23 +8,29 @@ export default function PersonCrud({ filterType }) {
   const [persons, setPersons] = useState([]);
   const [form, setForm] = useState({ id: null, firstName: '', lastName: '', email: '', personType: '' });
 
-  useEffect(() => { fetchAll(); }, []);
+  // after the first load only what changed is fetched
+  useEffect(() => followChanges(fetchAll, change => {
+    if (change.entity === 'Person') setPersons(list => applyChange(list, change, matchesFilter));
+  }), []);
+
+  function matchesFilter(p) {
+    return !filterType || p.personType === filterType;
+  }
 
   function fetchAll() {
-    axios.get(`${API}/persons`).then(r => {
-      const list = r.data;
-      if (filterType === 'STUDENT') setPersons(list.filter(p => p.personType === 'STUDENT'));
-      else if (filterType === 'TEACHER') setPersons(list.filter(p => p.personType === 'TEACHER'));
-      else setPersons(list);
-    }).catch(console.error);
+    return axios.get(`${API}/persons`).then(r => setPersons(r.data.filter(matchesFilter))).catch(console.error);
+  }
+
+  function apply(change) {
+    setPersons(list => applyChange(list, change, matchesFilter));
   }
 
   function submit(e) {
     e.preventDefault();
     if (form.id) {
-      axios.put(`${API}/persons/${form.id}`, form).then(() => { resetForm(); fetchAll(); }).catch(console.error);
+      axios.put(`${API}/persons/${form.id}`, form).then(r => { resetForm(); apply(saved(r.data)); }).catch(console.error);
     } else {
-      axios.post(`${API}/persons`, form).then(() => { resetForm(); fetchAll(); }).catch(console.error);
+      axios.post(`${API}/persons`, form).then(r => { resetForm(); apply(saved(r.data)); }).catch(console.error);
     }
   }
 
@@ -33,7 +40,7 @@ export default function PersonCrud({ filterType }) {
   }
 
   function remove(id) {
-    axios.delete(`${API}/persons/${id}`).then(() => fetchAll()).catch(console.error);
+    axios.delete(`${API}/persons/${id}`).then(() => apply(deleted(id))).catch(console.error);
   }
 
   function resetForm() {
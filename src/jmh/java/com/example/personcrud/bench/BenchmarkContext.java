@@ -0,0 +1,63 @@
+package com.example.personcrud.bench;
+
+import com.example.personcrud.PersonCrudApplication;
+import com.example.personcrud.model.Person;
+import com.example.personcrud.model.Student;
+import com.example.personcrud.model.Teacher;
+import com.example.personcrud.service.PersonService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots the application against a private in-memory H2 database, without a web server unless asked for one.
+ */
+final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(String database, String... extraProperties) {
+        return start(WebApplicationType.NONE, database, extraProperties);
+    }
+
+    // embedded Tomcat on a random port, read it back from local.server.port
+    static ConfigurableApplicationContext startServer(String database, String... extraProperties) {
+        List<String> properties = new ArrayList<>(List.of("server.port=0"));
+        properties.addAll(List.of(extraProperties));
+        return start(WebApplicationType.SERVLET, database, properties.toArray(new String[0]));
+    }
+
+    private static ConfigurableApplicationContext start(WebApplicationType type, String database, String... extraProperties) {
+        List<String> properties = new ArrayList<>(List.of(
+                "spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "spring.main.banner-mode=off",
+                "logging.level.root=WARN",
+                "logging.level.org.hibernate.SQL=WARN"));
+        properties.addAll(List.of(extraProperties));
+        // passed as command line arguments: builder properties are defaults and application.properties would win
+        return new SpringApplicationBuilder(PersonCrudApplication.class)
+                .web(type)
+                .run(properties.stream().map(p -> "--" + p).toArray(String[]::new));
+    }
+
+    // inserts students (and one teacher per 25 students) through the batched bulk path; returns student ids
+    static List<Long> seedStudents(PersonService persons, int count) {
+        List<Long> ids = new ArrayList<>(count);
+        List<Person> chunk = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            chunk.add(new Student("Student" + i, "Bench" + i, "student" + i + "@bench.example.com"));
+            if (i % 25 == 0) chunk.add(new Teacher("Teacher" + i, "Bench" + i, "teacher" + i + "@bench.example.com"));
+            if (chunk.size() >= 1000 || i == count - 1) {
+                for (Person p : persons.createAll(chunk)) {
+                    if (p instanceof Student) ids.add(p.getId());
+                }
+                chunk = new ArrayList<>();
+            }
+        }
+        return ids;
+    }
+}
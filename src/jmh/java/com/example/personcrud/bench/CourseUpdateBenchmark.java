@@ -0,0 +1,73 @@
+package com.example.personcrud.bench;
+
+import com.example.personcrud.dto.CourseDto;
+import com.example.personcrud.mapper.CourseMapper;
+import com.example.personcrud.service.CourseService;
+import com.example.personcrud.service.PersonService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The PUT /api/courses/{id} service path with large studentIds lists. Each call alternates
+ * between two rosters that differ in one student, the common "add one student" edit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CourseUpdateBenchmark {
+
+    @Param({"10", "300", "3000"})
+    public int students;
+
+    private ConfigurableApplicationContext context;
+    private CourseService courseService;
+    private Long courseId;
+    private CourseDto[] rosters;
+    private int flip;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("courseUpdateBenchmark" + students);
+        courseService = context.getBean(CourseService.class);
+        List<Long> ids = BenchmarkContext.seedStudents(context.getBean(PersonService.class), students + 1);
+
+        List<Long> base = new ArrayList<>(ids.subList(0, students));
+        List<Long> plusOne = new ArrayList<>(ids);
+        rosters = new CourseDto[]{
+                new CourseDto(null, "Benchmark course", null, base),
+                new CourseDto(null, "Benchmark course", null, plusOne)
+        };
+        courseId = courseService.create(CourseMapper.toEntity(rosters[0])).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<CourseDto> updateCourse() {
+        flip ^= 1;
+        return courseService.update(courseId, CourseMapper.toEntity(rosters[flip]), null);
+    }
+}
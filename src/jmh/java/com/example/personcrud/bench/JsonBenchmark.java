@@ -0,0 +1,88 @@
+package com.example.personcrud.bench;
+
+import com.example.personcrud.dto.CourseDto;
+import com.example.personcrud.dto.PersonDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson round trip of the DTOs, configured the way Spring MVC configures its ObjectMapper.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JsonBenchmark {
+
+    @Param({"10", "300", "3000"})
+    public int students;
+
+    private ObjectWriter personWriter;
+    private ObjectReader personReader;
+    private ObjectWriter courseWriter;
+    private ObjectReader courseReader;
+
+    private PersonDto person;
+    private byte[] personJson;
+    private CourseDto course;
+    private byte[] courseJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        personWriter = mapper.writerFor(PersonDto.class);
+        personReader = mapper.readerFor(PersonDto.class);
+        courseWriter = mapper.writerFor(CourseDto.class);
+        courseReader = mapper.readerFor(CourseDto.class);
+
+        person = new PersonDto(42L, "Ada", "Lovelace", "ada.lovelace@example.com", "STUDENT");
+        person.setVersion(3L);
+        personJson = personWriter.writeValueAsBytes(person);
+
+        List<Long> ids = new ArrayList<>(students);
+        for (int i = 0; i < students; i++) ids.add(100L + i);
+        course = new CourseDto(7L, "Course", 1L, ids);
+        course.setVersion(1L);
+        courseJson = courseWriter.writeValueAsBytes(course);
+    }
+
+    @Benchmark
+    public byte[] encodePerson() throws IOException {
+        return personWriter.writeValueAsBytes(person);
+    }
+
+    @Benchmark
+    public PersonDto decodePerson() throws IOException {
+        return personReader.readValue(personJson);
+    }
+
+    @Benchmark
+    public byte[] encodeCourse() throws IOException {
+        return courseWriter.writeValueAsBytes(course);
+    }
+
+    @Benchmark
+    public CourseDto decodeCourse() throws IOException {
+        return courseReader.readValue(courseJson);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.personcrud.bench;
+
+import com.example.personcrud.dto.CourseDto;
+import com.example.personcrud.dto.PersonDto;
+import com.example.personcrud.mapper.CourseMapper;
+import com.example.personcrud.mapper.PersonMapper;
+import com.example.personcrud.model.Course;
+import com.example.personcrud.model.Person;
+import com.example.personcrud.model.Student;
+import com.example.personcrud.model.Teacher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to DTO mapping as done by the controllers, for a person and for courses of growing size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MappingBenchmark {
+
+    @Param({"10", "300", "3000"})
+    public int students;
+
+    private Person person;
+    private PersonDto personDto;
+    private Course course;
+    private CourseDto courseDto;
+
+    @Setup
+    public void setUp() {
+        person = new Student("Ada", "Lovelace", "ada.lovelace@example.com");
+        person.setId(42L);
+        person.setVersion(3L);
+        personDto = PersonMapper.toDto(person);
+
+        Teacher teacher = new Teacher("Alan", "Turing", "alan.turing@example.com");
+        teacher.setId(1L);
+        Set<Student> enrolled = new LinkedHashSet<>();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < students; i++) {
+            Student s = new Student("Student" + i, "Lastname" + i, "student" + i + "@example.com");
+            s.setId(100L + i);
+            enrolled.add(s);
+            ids.add(s.getId());
+        }
+        course = new Course("Course", teacher);
+        course.setId(7L);
+        course.setVersion(1L);
+        course.setStudents(enrolled);
+        courseDto = new CourseDto(7L, "Course", 1L, ids);
+    }
+
+    @Benchmark
+    public PersonDto personToDto() {
+        return PersonMapper.toDto(person);
+    }
+
+    @Benchmark
+    public Person personToEntity() {
+        return PersonMapper.toEntity(personDto);
+    }
+
+    @Benchmark
+    public CourseDto courseToDto() {
+        return CourseMapper.toDto(course);
+    }
+
+    @Benchmark
+    public Course courseToEntity() {
+        return CourseMapper.toEntity(courseDto);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.personcrud.bench;
+
+import com.example.personcrud.dto.CourseDto;
+import com.example.personcrud.dto.CursorPage;
+import com.example.personcrud.dto.PersonDto;
+import com.example.personcrud.mapper.CourseMapper;
+import com.example.personcrud.service.CourseService;
+import com.example.personcrud.service.PersonService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service-level reads against a seeded H2 database at several table sizes.
+ * Courses hold 30 students each, one course per 30 students.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RepositoryBenchmark {
+
+    private static final int STUDENTS_PER_COURSE = 30;
+
+    @Param({"1000", "50000"})
+    public int persons;
+
+    private ConfigurableApplicationContext context;
+    private PersonService personService;
+    private CourseService courseService;
+    private List<Long> studentIds;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("repositoryBenchmark" + persons);
+        personService = context.getBean(PersonService.class);
+        courseService = context.getBean(CourseService.class);
+        studentIds = BenchmarkContext.seedStudents(personService, persons);
+        for (int from = 0; from + STUDENTS_PER_COURSE <= studentIds.size(); from += STUDENTS_PER_COURSE) {
+            CourseDto dto = new CourseDto(null, "Course " + from, null, studentIds.subList(from, from + STUDENTS_PER_COURSE));
+            courseService.create(CourseMapper.toEntity(dto));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private Long randomStudentId() {
+        return studentIds.get(random.nextInt(studentIds.size()));
+    }
+
+    @Benchmark
+    public Optional<PersonDto> findPersonById() {
+        return personService.findById(randomStudentId());
+    }
+
+    @Benchmark
+    public CursorPage<PersonDto> findPersonPage() {
+        return personService.findPage(randomStudentId(), 100);
+    }
+
+    @Benchmark
+    public List<PersonDto> findAllPersons() {
+        return personService.findAll();
+    }
+
+    @Benchmark
+    public List<CourseDto> findAllCourses() {
+        return courseService.findAllDtos();
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.personcrud.bench;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bursts of concurrent JDBC-bound HTTP requests (uncached prefix searches) against the app running on
+ * platform threads and on virtual threads. One operation is one whole burst.
+ * <p>
+ * The virtual mode needs a Java 21 JVM and a -Pjava21 build; on Java 17 its trials fail at startup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ThreadModeBenchmark {
+
+    private static final String[] PREFIXES = {"lo", "tu", "ho", "jo", "di", "li", "kn", "al", "ba", "pe", "th", "ha", "ri", "wi", "sm"};
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"50", "500"})
+    public int concurrency;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.startServer("threadModeBenchmark" + threads + concurrency,
+                "app.threads.virtual=" + threads.equals("virtual"),
+                "app.seed.students=20000",
+                "app.seed.courses=500",
+                "app.seed.median-course-size=30");
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/persons/search";
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Responses per burst: {@code ok} answered normally, {@code rejected} turned away with 503 by the
+     * concurrency limit.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+        public long ok;
+        public long rejected;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            ok = 0;
+            rejected = 0;
+        }
+    }
+
+    @Benchmark
+    public int burst(Outcomes outcomes) {
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            URI uri = URI.create(baseUrl + "?q=" + PREFIXES[random.nextInt(PREFIXES.length)] + "&limit=50");
+            responses.add(client.sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding()));
+        }
+        int ok = 0;
+        for (CompletableFuture<HttpResponse<Void>> response : responses) {
+            int status = response.join().statusCode();
+            if (status == 200) ok++;
+            else if (status == 503) outcomes.rejected++;
+        }
+        outcomes.ok += ok;
+        return ok;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.personcrud.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that adapts to latency, AIMD style: every response within the latency target adds
+ * {@code 1/limit} (about one per round of requests), a slower one multiplies the limit by {@code backoff}.
+ * Decreases are spaced at least one latency target apart, so a batch of requests that were all slowed
+ * by the same stall counts once instead of collapsing the limit to its minimum.
+ * <p>
+ * The limit only grows while at least half of it is in use; an idle route keeps whatever it had.
+ */
+public class AdaptiveLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyTargetNanos;
+    private final double backoff;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private long lastDecreaseNanos;
+
+    public AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, long latencyTargetNanos, double backoff) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.latencyTargetNanos = latencyTargetNanos;
+        this.backoff = backoff;
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.lastDecreaseNanos = System.nanoTime() - latencyTargetNanos;
+    }
+
+    /**
+     * Takes a slot without waiting, or returns -1 when the route is at its limit. The returned value is
+     * the number of requests in flight including this one, to be passed back to {@link #release}.
+     */
+    public int tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) return -1;
+            if (inFlight.compareAndSet(current, current + 1)) return current + 1;
+        }
+    }
+
+    /**
+     * Frees the slot and feeds the request's latency into the limit. Pass a negative latency for
+     * requests that were admitted but never ran.
+     */
+    public void release(int inFlightAtStart, long latencyNanos) {
+        inFlight.decrementAndGet();
+        if (latencyNanos >= 0) onSample(inFlightAtStart, latencyNanos, System.nanoTime());
+    }
+
+    synchronized void onSample(int inFlightAtStart, long latencyNanos, long nowNanos) {
+        double current = limit;
+        if (latencyNanos > latencyTargetNanos) {
+            if (nowNanos - lastDecreaseNanos >= latencyTargetNanos) {
+                limit = Math.max(minLimit, current * backoff);
+                lastDecreaseNanos = nowNanos;
+            }
+        } else if (inFlightAtStart * 2 >= current) {
+            limit = Math.min(maxLimit, current + 1 / current);
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.personcrud.admission;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registers the {@link AdmissionControlFilter} for every endpoint under {@code /api}, with
+ * {@code admission.limit} and {@code admission.in.flight} gauges per route.
+ */
+@Configuration
+@EnableConfigurationProperties(AdmissionProperties.class)
+public class AdmissionConfig {
+
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(AdmissionProperties properties,
+                                                                                 ObjectMapper objectMapper,
+                                                                                 MeterRegistry registry) {
+        List<AdmissionRoute> routes = new ArrayList<>();
+        for (Map.Entry<String, AdmissionProperties.Route> entry : properties.getRoutes().entrySet()) {
+            routes.add(new AdmissionRoute(entry.getKey(), entry.getValue()));
+        }
+        AdmissionRoute defaultRoute = new AdmissionRoute("default", properties.getDefaultRoute());
+        List<AdmissionRoute> all = new ArrayList<>(routes);
+        all.add(defaultRoute);
+        for (AdmissionRoute route : all) {
+            AdaptiveLimit limit = route.getLimit();
+            Gauge.builder("admission.limit", limit, AdaptiveLimit::getLimit).tag("route", route.getName()).register(registry);
+            Gauge.builder("admission.in.flight", limit, AdaptiveLimit::getInFlight).tag("route", route.getName()).register(registry);
+        }
+
+        ClientRateLimiter clients = properties.getClientRate() > 0
+                ? new ClientRateLimiter(properties.getClientRate(), properties.getClientBurst(),
+                        properties.getIdleClientExpiry(), properties.getMaxClients())
+                : null;
+        FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(new AdmissionControlFilter(
+                routes, defaultRoute, clients, properties.getClientHeader(), objectMapper, registry));
+        registration.addUrlPatterns("/api/*");
+        registration.setEnabled(properties.isEnabled());
+        return registration;
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.personcrud.admission;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.server.PathContainer;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admits an API request only if its route is under its {@link AdaptiveLimit} and its client has tokens
+ * left. Neither check waits: a route at its limit answers 503 and an exhausted client 429, both with
+ * Retry-After, so a burst of expensive listings is turned away in microseconds instead of queueing for
+ * Tomcat threads and pool connections that cheap single-entity reads also need.
+ * <p>
+ * The sum of the routes' {@code max-limit} is also the bound on API requests in flight, which matters
+ * with virtual threads where Tomcat's thread pool no longer provides one.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private final List<AdmissionRoute> routes;
+    private final AdmissionRoute defaultRoute;
+    private final ClientRateLimiter clients;
+    private final String clientHeader;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Counter[]> outcomes = new HashMap<>();
+
+    // indexes into the per-route outcome counters
+    private static final int ADMITTED = 0, THROTTLED = 1, SHED = 2;
+
+    /**
+     * @param clients null when per-client buckets are off
+     */
+    public AdmissionControlFilter(List<AdmissionRoute> routes, AdmissionRoute defaultRoute, ClientRateLimiter clients,
+                                  String clientHeader, ObjectMapper objectMapper, MeterRegistry registry) {
+        this.routes = List.copyOf(routes);
+        this.defaultRoute = defaultRoute;
+        this.clients = clients;
+        this.clientHeader = clientHeader;
+        this.objectMapper = objectMapper;
+        List<AdmissionRoute> all = new ArrayList<>(routes);
+        all.add(defaultRoute);
+        for (AdmissionRoute route : all) {
+            outcomes.put(route.getName(), new Counter[]{
+                    outcome(registry, route, "admitted"), outcome(registry, route, "throttled"), outcome(registry, route, "shed")});
+        }
+    }
+
+    private static Counter outcome(MeterRegistry registry, AdmissionRoute route, String outcome) {
+        return Counter.builder("admission.requests").tag("route", route.getName()).tag("outcome", outcome).register(registry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        AdmissionRoute route = route(request);
+        Counter[] counters = outcomes.get(route.getName());
+        AdaptiveLimit limit = route.getLimit();
+
+        int inFlight = limit.tryAcquire();
+        if (inFlight < 0) {
+            counters[SHED].increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, route.getRetryAfter(),
+                    "Too many concurrent " + route.getName() + " requests, retry shortly");
+            return;
+        }
+        // checked second so a request shed for concurrency does not also cost the client tokens
+        long waitNanos = clients == null ? 0 : clients.tryTake(clientKey(request), route.getCost());
+        if (waitNanos > 0) {
+            limit.release(inFlight, -1);
+            counters[THROTTLED].increment();
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, Duration.ofNanos(waitNanos),
+                    "Request rate limit exceeded, retry later");
+            return;
+        }
+        counters[ADMITTED].increment();
+
+        long start = System.nanoTime();
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) limit.release(inFlight, System.nanoTime() - start);
+        };
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            // streamed responses keep their slot until the async part completes
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingListener(release));
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    private AdmissionRoute route(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        PathContainer container = PathContainer.parsePath(path);
+        for (AdmissionRoute route : routes) {
+            if (route.matches(request.getMethod(), container)) return route;
+        }
+        return defaultRoute;
+    }
+
+    private String clientKey(HttpServletRequest request) {
+        if (StringUtils.hasText(clientHeader)) {
+            String value = request.getHeader(clientHeader);
+            if (StringUtils.hasText(value)) {
+                // the last X-Forwarded-For entry is the one our proxy appended; earlier ones come from the client
+                return value.substring(value.lastIndexOf(',') + 1).trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, Duration retryAfter, String detail) throws IOException {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(status, detail);
+        response.setStatus(status.value());
+        // whole seconds, rounded up so a client retrying on time finds capacity
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, (retryAfter.toNanos() + 999_999_999) / 1_000_000_000)));
+        response.setContentType(MediaType.APPLICATION_PROBLEM_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), problem);
+    }
+
+    private record ReleasingListener(Runnable release) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
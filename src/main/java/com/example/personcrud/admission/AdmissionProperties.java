@@ -0,0 +1,189 @@
+package com.example.personcrud.admission;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admission control for everything under {@code /api} ({@code app.admission.*}).
+ */
+@ConfigurationProperties(prefix = "app.admission")
+public class AdmissionProperties {
+
+    private boolean enabled = true;
+
+    // request header naming the client, e.g. X-Forwarded-For behind a proxy, whose last entry is used;
+    // empty uses the remote address
+    private String clientHeader = "";
+
+    // tokens a client earns per second and can save up; a request costs its route's cost. 0 turns buckets off
+    private double clientRate = 50;
+
+    private double clientBurst = 100;
+
+    // buckets of clients not seen for this long are dropped, and at most max-clients are kept
+    private Duration idleClientExpiry = Duration.ofMinutes(10);
+
+    private long maxClients = 100_000;
+
+    // named routes, matched in order before falling back to default-route
+    private Map<String, Route> routes = new LinkedHashMap<>();
+
+    private Route defaultRoute = new Route();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getClientHeader() {
+        return clientHeader;
+    }
+
+    public void setClientHeader(String clientHeader) {
+        this.clientHeader = clientHeader;
+    }
+
+    public double getClientRate() {
+        return clientRate;
+    }
+
+    public void setClientRate(double clientRate) {
+        this.clientRate = clientRate;
+    }
+
+    public double getClientBurst() {
+        return clientBurst;
+    }
+
+    public void setClientBurst(double clientBurst) {
+        this.clientBurst = clientBurst;
+    }
+
+    public Duration getIdleClientExpiry() {
+        return idleClientExpiry;
+    }
+
+    public void setIdleClientExpiry(Duration idleClientExpiry) {
+        this.idleClientExpiry = idleClientExpiry;
+    }
+
+    public long getMaxClients() {
+        return maxClients;
+    }
+
+    public void setMaxClients(long maxClients) {
+        this.maxClients = maxClients;
+    }
+
+    public Map<String, Route> getRoutes() {
+        return routes;
+    }
+
+    public void setRoutes(Map<String, Route> routes) {
+        this.routes = routes;
+    }
+
+    public Route getDefaultRoute() {
+        return defaultRoute;
+    }
+
+    public void setDefaultRoute(Route defaultRoute) {
+        this.defaultRoute = defaultRoute;
+    }
+
+    public static class Route {
+
+        // "GET /api/courses/{id}" or just a path pattern for any method
+        private List<String> patterns = new ArrayList<>();
+
+        // concurrent requests allowed on the route; the limit moves between min and max with observed latency
+        private int initialLimit = 20;
+
+        private int minLimit = 1;
+
+        private int maxLimit = 100;
+
+        // responses slower than this shrink the limit by backoff, faster ones let it grow
+        private Duration latencyTarget = Duration.ofMillis(100);
+
+        private double backoff = 0.9;
+
+        // tokens taken from the client's bucket per request
+        private double cost = 1;
+
+        // Retry-After sent when the route is at its limit
+        private Duration retryAfter = Duration.ofSeconds(1);
+
+        public List<String> getPatterns() {
+            return patterns;
+        }
+
+        public void setPatterns(List<String> patterns) {
+            this.patterns = patterns;
+        }
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        public Duration getLatencyTarget() {
+            return latencyTarget;
+        }
+
+        public void setLatencyTarget(Duration latencyTarget) {
+            this.latencyTarget = latencyTarget;
+        }
+
+        public double getBackoff() {
+            return backoff;
+        }
+
+        public void setBackoff(double backoff) {
+            this.backoff = backoff;
+        }
+
+        public double getCost() {
+            return cost;
+        }
+
+        public void setCost(double cost) {
+            this.cost = cost;
+        }
+
+        public Duration getRetryAfter() {
+            return retryAfter;
+        }
+
+        public void setRetryAfter(Duration retryAfter) {
+            this.retryAfter = retryAfter;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.personcrud.admission;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A group of endpoints sharing one {@link AdaptiveLimit}, with the token cost and Retry-After of its requests.
+ */
+public class AdmissionRoute {
+
+    private final String name;
+    private final List<Matcher> matchers = new ArrayList<>();
+    private final AdaptiveLimit limit;
+    private final double cost;
+    private final Duration retryAfter;
+
+    public AdmissionRoute(String name, AdmissionProperties.Route properties) {
+        this.name = name;
+        for (String pattern : properties.getPatterns()) {
+            matchers.add(Matcher.parse(pattern));
+        }
+        this.limit = new AdaptiveLimit(properties.getInitialLimit(), properties.getMinLimit(), properties.getMaxLimit(),
+                properties.getLatencyTarget().toNanos(), properties.getBackoff());
+        this.cost = properties.getCost();
+        this.retryAfter = properties.getRetryAfter();
+    }
+
+    boolean matches(String method, PathContainer path) {
+        for (Matcher matcher : matchers) {
+            if (matcher.matches(method, path)) return true;
+        }
+        return false;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public AdaptiveLimit getLimit() {
+        return limit;
+    }
+
+    public double getCost() {
+        return cost;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    // method is null for patterns without one
+    private record Matcher(String method, PathPattern path) {
+
+        static Matcher parse(String pattern) {
+            String trimmed = pattern.trim();
+            int space = trimmed.indexOf(' ');
+            if (space < 0) return new Matcher(null, PathPatternParser.defaultInstance.parse(trimmed));
+            return new Matcher(trimmed.substring(0, space).toUpperCase(Locale.ROOT),
+                    PathPatternParser.defaultInstance.parse(trimmed.substring(space + 1).trim()));
+        }
+
+        boolean matches(String requestMethod, PathContainer requestPath) {
+            return (method == null || method.equals(requestMethod)) && path.matches(requestPath);
+        }
+    }
+}
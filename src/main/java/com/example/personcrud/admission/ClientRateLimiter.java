@@ -0,0 +1,59 @@
+package com.example.personcrud.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+
+/**
+ * One token bucket per client. Buckets refill at {@code rate} tokens per second up to {@code burst};
+ * a request takes its route's cost and is refused while the bucket holds less than that.
+ */
+public class ClientRateLimiter {
+
+    private final double ratePerNano;
+    private final double burst;
+    private final Cache<String, Bucket> buckets;
+
+    public ClientRateLimiter(double ratePerSecond, double burst, Duration idleExpiry, long maxClients) {
+        this.ratePerNano = ratePerSecond / 1e9;
+        this.burst = burst;
+        // an evicted client comes back with a full bucket, which is what it would have refilled to anyway
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(idleExpiry)
+                .maximumSize(maxClients)
+                .build();
+    }
+
+    /**
+     * Takes {@code cost} tokens from the client's bucket. Returns 0 when they were taken, otherwise the
+     * nanoseconds until the bucket will hold enough; nothing is taken in that case.
+     */
+    public long tryTake(String client, double cost) {
+        long now = System.nanoTime();
+        return buckets.get(client, c -> new Bucket(burst, now)).tryTake(Math.min(cost, burst), now);
+    }
+
+    private final class Bucket {
+
+        private double tokens;
+        private long refilledNanos;
+
+        Bucket(double tokens, long refilledNanos) {
+            this.tokens = tokens;
+            this.refilledNanos = refilledNanos;
+        }
+
+        synchronized long tryTake(double cost, long now) {
+            if (now > refilledNanos) {
+                tokens = Math.min(burst, tokens + (now - refilledNanos) * ratePerNano);
+                refilledNanos = now;
+            }
+            if (tokens >= cost) {
+                tokens -= cost;
+                return 0;
+            }
+            return (long) Math.ceil((cost - tokens) / ratePerNano);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.personcrud.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(AuditProperties.class)
+public class AuditConfig {
+
+    @Bean(destroyMethod = "close")
+    public AuditLog auditLog(AuditProperties properties, MeterRegistry registry) {
+        // a plain mapper: the log format must not change with the API's Jackson settings
+        return new AuditLog(properties, new ObjectMapper().findAndRegisterModules(), registry);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.personcrud.audit;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One committed change. {@code seq} is assigned when the event is written and increases by one per
+ * event across segments; {@code state} holds the entity's values after the change (empty for deletes)
+ * and {@code changed} the properties an update touched.
+ */
+public class AuditEvent {
+
+    private long seq;
+
+    private long timestamp;
+
+    private String entity;
+
+    private Long entityId;
+
+    private Operation operation;
+
+    private Long version;
+
+    private Map<String, Object> state = new LinkedHashMap<>();
+
+    private List<String> changed;
+
+    public enum Operation {
+        CREATE, UPDATE, DELETE
+    }
+
+    public AuditEvent() {
+    }
+
+    public AuditEvent(String entity, Long entityId, Operation operation, Long version, Map<String, Object> state) {
+        this.timestamp = System.currentTimeMillis();
+        this.entity = entity;
+        this.entityId = entityId;
+        this.operation = operation;
+        this.version = version;
+        this.state = state;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public String getEntity() {
+        return entity;
+    }
+
+    public void setEntity(String entity) {
+        this.entity = entity;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(Long entityId) {
+        this.entityId = entityId;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public void setOperation(Operation operation) {
+        this.operation = operation;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Map<String, Object> getState() {
+        return state;
+    }
+
+    public void setState(Map<String, Object> state) {
+        this.state = state;
+    }
+
+    public List<String> getChanged() {
+        return changed;
+    }
+
+    public void setChanged(List<String> changed) {
+        this.changed = changed;
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.personcrud.audit;
+
+import com.example.personcrud.capture.CaptureScope;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write-behind audit log. Changes are captured inside the transaction, handed to a lock-free ring buffer
+ * only once it commits, and appended in batches to {@link AuditSegments} by a single background thread,
+ * so the write path pays for an array store instead of an extra insert.
+ * <p>
+ * Events still in the buffer are lost if the process is killed; on a normal shutdown the writer drains
+ * the buffer and forces the segment to disk before the application exits.
+ */
+public class AuditLog implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLog.class);
+
+    private final AuditProperties properties;
+    private final RingBuffer<AuditEvent> buffer;
+    private final AuditSegments segments;
+    private final Thread writer;
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter failed;
+    private volatile boolean closed;
+
+    public AuditLog(AuditProperties properties, ObjectMapper objectMapper, MeterRegistry registry) {
+        this.properties = properties;
+        this.buffer = new RingBuffer<>(properties.getCapacity());
+        try {
+            this.segments = new AuditSegments(Path.of(properties.getDir()), properties.getSegmentSize().toBytes(),
+                    properties.isFsync(), objectMapper);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open audit log in " + properties.getDir(), e);
+        }
+        this.written = events(registry, "written");
+        this.dropped = events(registry, "dropped");
+        this.failed = events(registry, "failed");
+        Gauge.builder("audit.buffer.size", buffer, RingBuffer::size)
+                .description("Committed audit events waiting for the writer")
+                .register(registry);
+        this.writer = new Thread(this::drain, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private static Counter events(MeterRegistry registry, String outcome) {
+        return Counter.builder("audit.events").tag("outcome", outcome).register(registry);
+    }
+
+    /**
+     * Records an event when the current transaction commits, or right away outside a transaction.
+     * Events of a rolled-back transaction are discarded.
+     */
+    public void capture(AuditEvent event) {
+        if (!properties.isEnabled() || CaptureScope.isSuppressed()) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(event);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<AuditEvent> pending = (List<AuditEvent>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<AuditEvent> events = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, events);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    events.forEach(AuditLog.this::enqueue);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(AuditLog.this);
+                }
+            });
+            pending = events;
+        }
+        pending.add(event);
+    }
+
+    private void enqueue(AuditEvent event) {
+        if (closed) {
+            dropped.increment();
+            return;
+        }
+        if (buffer.offer(event)) return;
+        LockSupport.unpark(writer);
+        if (properties.getOverflow() == AuditProperties.Overflow.BLOCK) {
+            long deadline = System.nanoTime() + properties.getBlockTimeout().toNanos();
+            while (System.nanoTime() < deadline && !closed) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+                if (buffer.offer(event)) return;
+            }
+        }
+        dropped.increment();
+    }
+
+    private void drain() {
+        long idleNanos = properties.getFlushInterval().toNanos();
+        List<AuditEvent> batch = new ArrayList<>(properties.getBatchSize());
+        while (true) {
+            boolean stopping = closed;
+            fill(batch);
+            if (!batch.isEmpty()) {
+                write(batch);
+            } else if (stopping) {
+                return;
+            } else {
+                LockSupport.parkNanos(idleNanos);
+            }
+        }
+    }
+
+    private void fill(List<AuditEvent> batch) {
+        batch.clear();
+        AuditEvent event;
+        while (batch.size() < properties.getBatchSize() && (event = buffer.poll()) != null) {
+            batch.add(event);
+        }
+    }
+
+    private void write(List<AuditEvent> batch) {
+        try {
+            segments.append(batch);
+            written.increment(batch.size());
+        } catch (IOException e) {
+            failed.increment(batch.size());
+            log.error("Could not write {} audit events", batch.size(), e);
+        }
+    }
+
+    /**
+     * Events with a sequence number above {@code after}, oldest first. Committed events reach the log
+     * within about {@code flush-interval}; until then they are not returned.
+     */
+    public List<AuditEvent> replay(long after, int limit) {
+        try {
+            return segments.readAfter(after, limit);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long lastSeq() {
+        return segments.lastSeq();
+    }
+
+    // waits for the writer to empty the buffer; events enqueued after close() are dropped
+    @Override
+    public void close() throws IOException, InterruptedException {
+        closed = true;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        if (writer.isAlive()) {
+            // the writer may still be appending, so the segments stay open; the lock goes with the process
+            log.warn("Audit writer did not finish, {} events were not written", buffer.size());
+            return;
+        }
+        // events that raced with the closed flag; the writer has exited, so this thread is the only consumer
+        List<AuditEvent> batch = new ArrayList<>(properties.getBatchSize());
+        for (fill(batch); !batch.isEmpty(); fill(batch)) write(batch);
+        segments.close();
+        log.info("Audit log closed at seq {}", segments.lastSeq());
+    }
+}
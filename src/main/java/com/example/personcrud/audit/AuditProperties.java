@@ -0,0 +1,117 @@
+package com.example.personcrud.audit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Write-behind audit log of entity changes ({@code app.audit.*}).
+ */
+@ConfigurationProperties(prefix = "app.audit")
+public class AuditProperties {
+
+    private boolean enabled = true;
+
+    // segment files live here; each is named after the first sequence number it holds
+    private String dir = "./data/audit";
+
+    // ring buffer slots, rounded up to a power of two
+    private int capacity = 8192;
+
+    // events per write, and per fsync when fsync is on
+    private int batchSize = 512;
+
+    // how long the writer sleeps when the buffer is empty, i.e. the worst-case delay before an event is on disk
+    private Duration flushInterval = Duration.ofMillis(50);
+
+    private DataSize segmentSize = DataSize.ofMegabytes(16);
+
+    // force each batch to the device, not just to the OS page cache
+    private boolean fsync = true;
+
+    // what a committing thread does when the buffer is full
+    private Overflow overflow = Overflow.BLOCK;
+
+    // BLOCK waits at most this long before dropping the event
+    private Duration blockTimeout = Duration.ofSeconds(1);
+
+    public enum Overflow {
+        // wait for the writer to make room, slowing writers down to the disk's pace
+        BLOCK,
+        // discard the event and count it in audit.events{outcome=dropped}
+        DROP
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDir() {
+        return dir;
+    }
+
+    public void setDir(String dir) {
+        this.dir = dir;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public DataSize getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(DataSize segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public boolean isFsync() {
+        return fsync;
+    }
+
+    public void setFsync(boolean fsync) {
+        this.fsync = fsync;
+    }
+
+    public Overflow getOverflow() {
+        return overflow;
+    }
+
+    public void setOverflow(Overflow overflow) {
+        this.overflow = overflow;
+    }
+
+    public Duration getBlockTimeout() {
+        return blockTimeout;
+    }
+
+    public void setBlockTimeout(Duration blockTimeout) {
+        this.blockTimeout = blockTimeout;
+    }
+}
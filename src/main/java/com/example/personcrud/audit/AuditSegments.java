@@ -0,0 +1,212 @@
+package com.example.personcrud.audit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Append-only NDJSON files {@code audit-<first seq>.log}. A new segment is started once the current one
+ * reaches the configured size, so old history can be archived or deleted file by file.
+ * <p>
+ * Appends are only made by the writer thread. Readers may run concurrently and ignore a trailing line
+ * that is still being written; on startup such a torn line, left by a crash, is cut off.
+ * <p>
+ * Sequence numbers are only continuous with a single writer, so the directory is claimed with an
+ * exclusive lock on {@code audit.lock} for as long as the segments are open. Opening a directory that
+ * another process, or another log in this one, holds fails.
+ */
+class AuditSegments implements AutoCloseable {
+
+    private static final String PREFIX = "audit-";
+    private static final String SUFFIX = ".log";
+    private static final String LOCK = "audit.lock";
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final boolean fsync;
+    private final ObjectMapper mapper;
+
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private FileChannel current;
+    // a failed append whose partial line could not be cut off; the next append terminates it first
+    private boolean tornTail;
+    // written by the writer thread only, read by replay callers
+    private volatile long lastSeq;
+
+    AuditSegments(Path dir, long segmentBytes, boolean fsync, ObjectMapper mapper) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+        this.mapper = mapper;
+        Files.createDirectories(dir);
+        lockChannel = FileChannel.open(dir.resolve(LOCK), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        lock = tryLock(lockChannel);
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Audit directory " + dir.toAbsolutePath() + " is in use by another writer");
+        }
+        List<Path> segments = segments();
+        if (!segments.isEmpty()) {
+            Path last = segments.get(segments.size() - 1);
+            truncateTornTail(last);
+            lastSeq = firstSeq(last) - 1;
+            try (Stream<AuditEvent> events = read(last)) {
+                lastSeq = events.mapToLong(AuditEvent::getSeq).max().orElse(lastSeq);
+            }
+            current = FileChannel.open(last, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+    }
+
+    // null when held elsewhere; the JDK reports a lock held within this process with an exception instead
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    long lastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * Writer thread only: numbers the events, appends them with one write and optionally forces them to
+     * disk. A failed write is cut back to where it started, so the batch leaves no partial line for the
+     * next one to be glued to and its sequence numbers are reused.
+     */
+    void append(List<AuditEvent> batch) throws IOException {
+        if (current == null || current.size() >= segmentBytes) {
+            rotate();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(batch.size() * 256);
+        if (tornTail) out.write('\n');
+        long seq = lastSeq;
+        for (AuditEvent event : batch) {
+            event.setSeq(++seq);
+            out.write(mapper.writeValueAsBytes(event));
+            out.write('\n');
+        }
+        long start = current.size();
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+            while (buffer.hasRemaining()) current.write(buffer);
+            if (fsync) current.force(false);
+        } catch (IOException e) {
+            try {
+                current.truncate(start);
+            } catch (IOException truncateFailed) {
+                tornTail = true;
+                e.addSuppressed(truncateFailed);
+            }
+            throw e;
+        }
+        tornTail = false;
+        lastSeq = seq;
+    }
+
+    private void rotate() throws IOException {
+        if (current != null) {
+            current.force(true);
+            current.close();
+        }
+        Path next = dir.resolve(String.format("%s%020d%s", PREFIX, lastSeq + 1, SUFFIX));
+        current = FileChannel.open(next, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Up to {@code limit} events with a sequence number above {@code after}, oldest first. Only segments
+     * that can contain them are opened.
+     */
+    List<AuditEvent> readAfter(long after, int limit) throws IOException {
+        List<Path> segments = segments();
+        int start = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            if (firstSeq(segments.get(i)) <= after + 1) start = i;
+        }
+        List<AuditEvent> events = new ArrayList<>(Math.min(limit, 1024));
+        for (int i = start; i < segments.size() && events.size() < limit; i++) {
+            try (Stream<AuditEvent> segment = read(segments.get(i))) {
+                segment.filter(e -> e.getSeq() > after).limit(limit - events.size()).forEach(events::add);
+            }
+        }
+        return events;
+    }
+
+    private Stream<AuditEvent> read(Path segment) throws IOException {
+        BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8);
+        return reader.lines().<AuditEvent>mapMulti((line, sink) -> {
+            try {
+                sink.accept(mapper.readValue(line, AuditEvent.class));
+            } catch (JsonProcessingException e) {
+                // a line still being appended, or torn by a crash
+            }
+        }).onClose(() -> {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }).sorted().toList();
+        }
+    }
+
+    private static long firstSeq(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static void truncateTornTail(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long end = size;
+            ByteBuffer one = ByteBuffer.allocate(1);
+            while (end > 0) {
+                one.clear();
+                channel.read(one, end - 1);
+                if (one.get(0) == '\n') break;
+                end--;
+            }
+            if (end < size) channel.truncate(end);
+        }
+    }
+
+    void force() throws IOException {
+        if (current != null) current.force(true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (current != null) {
+            current.force(true);
+            current.close();
+            current = null;
+        }
+        // closing the channel releases the lock
+        lockChannel.close();
+    }
+}
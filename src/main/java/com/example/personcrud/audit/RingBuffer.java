@@ -0,0 +1,72 @@
+package com.example.personcrud.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue for many producers and one consumer (Vyukov's array queue).
+ * <p>
+ * Every slot carries a sequence number: a producer claims position {@code p} with a CAS on the tail once
+ * the slot's sequence equals {@code p}, stores the element and publishes it by setting the sequence to
+ * {@code p + 1}; the consumer frees the slot for the next lap by setting it to {@code p + capacity}.
+ * A full buffer makes {@link #offer} return false instead of waiting.
+ */
+final class RingBuffer<T> {
+
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // only the consumer moves the head; volatile so size() is meaningful from other threads
+    private volatile long head;
+
+    RingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        elements = new Object[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) sequences.set(i, i);
+        mask = size - 1;
+    }
+
+    boolean offer(T element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long lag = sequences.get(index) - position;
+            if (lag == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements[index] = element;
+                    sequences.setRelease(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (lag < 0) {
+                // the slot still holds the element from the previous lap
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    // single consumer only
+    @SuppressWarnings("unchecked")
+    T poll() {
+        long position = head;
+        int index = (int) (position & mask);
+        if (sequences.getAcquire(index) != position + 1) return null;
+        T element = (T) elements[index];
+        elements[index] = null;
+        sequences.setRelease(index, position + elements.length);
+        head = position + 1;
+        return element;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    int capacity() {
+        return elements.length;
+    }
+}
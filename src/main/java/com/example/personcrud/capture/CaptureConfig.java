@@ -0,0 +1,29 @@
+package com.example.personcrud.capture;
+
+import com.example.personcrud.audit.AuditLog;
+import com.example.personcrud.changes.ChangeLog;
+import com.example.personcrud.enrollment.EnrollmentModel;
+import com.example.personcrud.search.PersonSearchIndex;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CaptureConfig {
+
+    @Bean
+    public EntityChangeListener entityChangeListener(EntityManagerFactory entityManagerFactory, AuditLog auditLog,
+                                                     ChangeLog changeLog, EnrollmentModel enrollmentModel,
+                                                     PersonSearchIndex searchIndex) {
+        EntityChangeListener listener = new EntityChangeListener(auditLog, changeLog, enrollmentModel, searchIndex);
+        EventListenerRegistry listeners = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        listeners.appendListeners(EventType.POST_INSERT, listener);
+        listeners.appendListeners(EventType.POST_UPDATE, listener);
+        listeners.appendListeners(EventType.POST_DELETE, listener);
+        return listener;
+    }
+}
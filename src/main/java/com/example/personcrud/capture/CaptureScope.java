@@ -0,0 +1,28 @@
+package com.example.personcrud.capture;
+
+/**
+ * Marks writes on the current thread that are not changes anyone made, e.g. generated seed data. The
+ * audit log and the change log skip them; the enrollment model still applies them, as it mirrors the
+ * data rather than its history.
+ */
+public final class CaptureScope {
+
+    private static final ThreadLocal<Boolean> SUPPRESSED = new ThreadLocal<>();
+
+    private CaptureScope() {
+    }
+
+    public static void withoutCapture(Runnable action) {
+        Boolean outer = SUPPRESSED.get();
+        SUPPRESSED.set(Boolean.TRUE);
+        try {
+            action.run();
+        } finally {
+            if (outer == null) SUPPRESSED.remove();
+        }
+    }
+
+    public static boolean isSuppressed() {
+        return SUPPRESSED.get() != null;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.personcrud.capture;
+
+import com.example.personcrud.audit.AuditEvent;
+import com.example.personcrud.audit.AuditLog;
+import com.example.personcrud.changes.ChangeLog;
+import com.example.personcrud.enrollment.EnrollmentModel;
+import com.example.personcrud.mapper.PersonMapper;
+import com.example.personcrud.model.Course;
+import com.example.personcrud.model.Person;
+import com.example.personcrud.search.PersonSearchIndex;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The one consumer of Hibernate's post-insert/update/delete events for {@link Person} and {@link Course}:
+ * each change goes to the {@link AuditLog}, the {@link ChangeLog}, the {@link EnrollmentModel} and, for
+ * persons, the {@link PersonSearchIndex}, which all act on it only once the transaction commits. Set-based
+ * statements fire no events; the service that runs them records them with each of the first three itself.
+ */
+public class EntityChangeListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final AuditLog auditLog;
+    private final ChangeLog changeLog;
+    private final EnrollmentModel enrollmentModel;
+    private final PersonSearchIndex searchIndex;
+
+    public EntityChangeListener(AuditLog auditLog, ChangeLog changeLog, EnrollmentModel enrollmentModel,
+                                PersonSearchIndex searchIndex) {
+        this.auditLog = auditLog;
+        this.changeLog = changeLog;
+        this.enrollmentModel = enrollmentModel;
+        this.searchIndex = searchIndex;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Person p) {
+            auditLog.capture(new AuditEvent("Person", p.getId(), AuditEvent.Operation.CREATE, p.getVersion(), state(p)));
+            changeLog.record(event.getSession(), ChangeLog.PERSON, p.getId(), ChangeLog.Operation.CREATE);
+            enrollmentModel.personSaved(event.getSession(), p);
+            searchIndex.personSaved(p);
+        } else if (event.getEntity() instanceof Course c) {
+            auditLog.capture(new AuditEvent("Course", c.getId(), AuditEvent.Operation.CREATE, c.getVersion(), state(c)));
+            changeLog.record(event.getSession(), ChangeLog.COURSE, c.getId(), ChangeLog.Operation.CREATE);
+            enrollmentModel.courseSaved(event.getSession(), c);
+        }
+    }
+
+    // the enrollment model keeps no names, so person updates do not concern it
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Person p) {
+            AuditEvent audit = new AuditEvent("Person", p.getId(), AuditEvent.Operation.UPDATE, p.getVersion(), state(p));
+            audit.setChanged(changed(event.getDirtyProperties(), event.getPersister()));
+            auditLog.capture(audit);
+            changeLog.record(event.getSession(), ChangeLog.PERSON, p.getId(), ChangeLog.Operation.UPDATE);
+            searchIndex.personSaved(p);
+        } else if (event.getEntity() instanceof Course c) {
+            AuditEvent audit = new AuditEvent("Course", c.getId(), AuditEvent.Operation.UPDATE, c.getVersion(), state(c));
+            audit.setChanged(changed(event.getDirtyProperties(), event.getPersister()));
+            auditLog.capture(audit);
+            changeLog.record(event.getSession(), ChangeLog.COURSE, c.getId(), ChangeLog.Operation.UPDATE);
+            enrollmentModel.courseSaved(event.getSession(), c);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Person p) {
+            auditLog.capture(new AuditEvent("Person", p.getId(), AuditEvent.Operation.DELETE, p.getVersion(), new LinkedHashMap<>()));
+            changeLog.record(event.getSession(), ChangeLog.PERSON, p.getId(), ChangeLog.Operation.DELETE);
+            enrollmentModel.personDeleted(event.getSession(), p.getId());
+            searchIndex.personDeleted(p.getId());
+        } else if (event.getEntity() instanceof Course c) {
+            auditLog.capture(new AuditEvent("Course", c.getId(), AuditEvent.Operation.DELETE, c.getVersion(), new LinkedHashMap<>()));
+            changeLog.record(event.getSession(), ChangeLog.COURSE, c.getId(), ChangeLog.Operation.DELETE);
+            enrollmentModel.courseDeleted(event.getSession(), c.getId());
+        }
+    }
+
+    private static List<String> changed(int[] dirty, EntityPersister persister) {
+        String[] names = persister.getPropertyNames();
+        List<String> changed = new ArrayList<>(dirty.length);
+        for (int i : dirty) changed.add(names[i]);
+        return changed;
+    }
+
+    private static Map<String, Object> state(Person p) {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("personType", PersonMapper.personType(p.getClass()));
+        state.put("firstName", p.getFirstName());
+        state.put("lastName", p.getLastName());
+        state.put("email", p.getEmail());
+        return state;
+    }
+
+    // the student set is left out of the audit state: it can be large, and its changes bump the course version anyway
+    private static Map<String, Object> state(Course c) {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("name", c.getName());
+        state.put("teacherId", c.getTeacher() == null ? null : c.getTeacher().getId());
+        return state;
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+}
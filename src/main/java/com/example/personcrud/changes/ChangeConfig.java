@@ -0,0 +1,26 @@
+package com.example.personcrud.changes;
+
+import com.example.personcrud.service.CourseService;
+import com.example.personcrud.service.PersonService;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Configuration
+@EnableConfigurationProperties(ChangeProperties.class)
+public class ChangeConfig {
+
+    @Bean(destroyMethod = "close")
+    public ChangeLog changeLog(ChangeProperties properties, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        return new ChangeLog(properties, jdbcTemplate, transactionTemplate);
+    }
+
+    @Bean(destroyMethod = "close")
+    public ChangeFeed changeFeed(ChangeLog changeLog, PersonService personService, CourseService courseService,
+                                 PlatformTransactionManager transactionManager, ChangeProperties properties) {
+        return new ChangeFeed(changeLog, personService, courseService, new TransactionTemplate(transactionManager), properties);
+    }
+}
@@ -0,0 +1,297 @@
+package com.example.personcrud.changes;
+
+import com.example.personcrud.dto.Change;
+import com.example.personcrud.dto.ChangeBatch;
+import com.example.personcrud.dto.CourseDto;
+import com.example.personcrud.dto.PersonDto;
+import com.example.personcrud.service.CourseService;
+import com.example.personcrud.service.PersonService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the {@link ChangeLog} with the current state of each changed entity attached, and pushes the
+ * same batches to Server-Sent Events subscribers as transactions commit.
+ * <p>
+ * Subscribers are served by one dispatcher thread. A commit schedules at most one pending broadcast,
+ * which reads the log once from the lowest subscriber cursor and hands every subscriber the entries
+ * past its own, so the cost of a commit does not grow with the number of open streams.
+ * <p>
+ * The dispatcher never writes to a connection: it queues events in each subscriber's outbox, which a
+ * sender thread of that subscriber drains. An outbox holds at most two pages; a subscriber without room
+ * for another page is skipped and picked up again once its client has taken what is queued, so a slow
+ * client only falls behind itself.
+ */
+public class ChangeFeed implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeFeed.class);
+
+    static final int PAGE_SIZE = 500;
+    private static final int OUTBOX_CAPACITY = 2 * PAGE_SIZE;
+
+    private final ChangeLog changeLog;
+    private final PersonService personService;
+    private final CourseService courseService;
+    private final TransactionTemplate primaryTransaction;
+    private final ChangeProperties properties;
+
+    private final ScheduledExecutorService dispatcher;
+    // one task per subscriber with queued events; a send blocked on a slow client only holds its own thread
+    private final ExecutorService senders;
+    // only touched on the dispatcher thread
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private final AtomicBoolean broadcastScheduled = new AtomicBoolean();
+
+    /**
+     * @param primaryTransaction a read-write template: the broadcast must see the commit that triggered it,
+     *                           which a replica may not have yet
+     */
+    public ChangeFeed(ChangeLog changeLog, PersonService personService, CourseService courseService,
+                      TransactionTemplate primaryTransaction, ChangeProperties properties) {
+        this.changeLog = changeLog;
+        this.personService = personService;
+        this.courseService = courseService;
+        this.primaryTransaction = primaryTransaction;
+        this.properties = properties;
+        this.dispatcher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "change-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.senders = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "change-feed-send");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long heartbeat = properties.getHeartbeat().toMillis();
+        if (heartbeat > 0) {
+            dispatcher.scheduleWithFixedDelay(this::heartbeat, heartbeat, heartbeat, TimeUnit.MILLISECONDS);
+        }
+        changeLog.onCommit(seq -> scheduleBroadcast());
+    }
+
+    /**
+     * Changes after {@code since}, at most {@code limit}. Without {@code since} no changes are returned,
+     * only the cursor to follow the feed from: take it before loading the full collections so nothing
+     * committed in between is missed.
+     */
+    @Transactional(readOnly = true)
+    public ChangeBatch read(Long since, int limit) {
+        if (since == null) return new ChangeBatch(new ArrayList<>(), changeLog.head(), false);
+        return batch(since, limit);
+    }
+
+    private ChangeBatch batch(long since, int limit) {
+        long horizon = changeLog.horizon();
+        if (since < horizon) throw new ChangeFeedExpiredException(since, horizon);
+        List<ChangeLog.Entry> entries = changeLog.readAfter(since, limit + 1);
+        boolean more = entries.size() > limit;
+        if (more) entries = entries.subList(0, limit);
+
+        Map<Long, PersonDto> persons = load(entries, ChangeLog.PERSON, personService::findAllById, PersonDto::getId);
+        Map<Long, CourseDto> courses = load(entries, ChangeLog.COURSE, courseService::findDtosByIds, CourseDto::getId);
+        List<Change> changes = new ArrayList<>(entries.size());
+        for (ChangeLog.Entry entry : entries) {
+            Object data = entry.operation() == ChangeLog.Operation.DELETE ? null
+                    : ChangeLog.PERSON.equals(entry.entity()) ? persons.get(entry.entityId()) : courses.get(entry.entityId());
+            // deleted after the entry was read; its tombstone follows in a later batch
+            String operation = data == null ? ChangeLog.Operation.DELETE.name() : entry.operation().name();
+            changes.add(new Change(entry.seq(), entry.entity(), entry.entityId(), operation, data));
+        }
+        long next = entries.isEmpty() ? since : entries.get(entries.size() - 1).seq();
+        return new ChangeBatch(changes, next, more);
+    }
+
+    private static <T> Map<Long, T> load(List<ChangeLog.Entry> entries, String entity,
+                                         Function<List<Long>, List<T>> finder, Function<T, Long> id) {
+        List<Long> ids = entries.stream()
+                .filter(e -> entity.equals(e.entity()) && e.operation() != ChangeLog.Operation.DELETE)
+                .map(ChangeLog.Entry::entityId)
+                .collect(Collectors.toList());
+        if (ids.isEmpty()) return Map.of();
+        return finder.apply(ids).stream().collect(Collectors.toMap(id, Function.identity()));
+    }
+
+    /**
+     * Opens a stream of changes after {@code since}, or from now on without it. Each change is sent as
+     * a {@code change} event whose id is its seq, so a reconnecting EventSource resumes via Last-Event-ID.
+     * A cursor behind the compaction horizon gets a single {@code resync} event and the stream ends.
+     */
+    public SseEmitter subscribe(Long since) {
+        SseEmitter emitter = new SseEmitter(properties.getStreamTimeout().toMillis());
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscriber.closed = true);
+        emitter.onError(e -> subscriber.closed = true);
+        dispatcher.execute(() -> {
+            try {
+                subscriber.cursor = since != null ? since : primaryTransaction.execute(status -> changeLog.head());
+                deliver(new ArrayList<>(List.of(subscriber)));
+                if (!subscriber.closed) subscribers.add(subscriber);
+            } catch (RuntimeException e) {
+                log.warn("Change feed subscription failed", e);
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
+
+    private void scheduleBroadcast() {
+        if (!broadcastScheduled.compareAndSet(false, true)) return;
+        dispatcher.execute(() -> {
+            // cleared first: a commit landing during the delivery schedules the next round
+            broadcastScheduled.set(false);
+            try {
+                deliver(subscribers);
+            } catch (RuntimeException e) {
+                log.warn("Change feed broadcast failed", e);
+            }
+        });
+    }
+
+    /**
+     * Queues for targets everything past their cursors, a page at a time; drops closed and expired
+     * subscribers from the list. Subscribers whose outbox has no room for a page are paused and left at
+     * their cursor.
+     */
+    private void deliver(List<Subscriber> targets) {
+        while (true) {
+            targets.removeIf(s -> s.closed);
+            List<Subscriber> ready = new ArrayList<>(targets.size());
+            for (Subscriber s : targets) {
+                if (s.hasRoomForPage()) ready.add(s);
+                else s.pause();
+            }
+            if (ready.isEmpty()) return;
+            long from = ready.stream().mapToLong(s -> s.cursor).min().getAsLong();
+            ChangeBatch batch;
+            try {
+                batch = primaryTransaction.execute(status -> batch(from, PAGE_SIZE));
+            } catch (ChangeFeedExpiredException e) {
+                for (Subscriber s : ready) {
+                    if (s.cursor < e.getHorizon()) resync(s);
+                }
+                continue;
+            }
+            for (Change change : batch.getChanges()) {
+                for (Subscriber s : ready) {
+                    if (!s.closed && change.getSeq() > s.cursor) s.enqueue(SseEmitter.event()
+                            .id(Long.toString(change.getSeq()))
+                            .name("change")
+                            .data(change, MediaType.APPLICATION_JSON));
+                }
+            }
+            for (Subscriber s : ready) s.cursor = Math.max(s.cursor, batch.getNext());
+            if (!batch.isMore()) return;
+        }
+    }
+
+    private void resync(Subscriber subscriber) {
+        subscriber.enqueue(SseEmitter.event().name("resync").data(""));
+        subscriber.finish();
+    }
+
+    // idle streams only; one with queued events is already being written to
+    private void heartbeat() {
+        subscribers.removeIf(s -> s.closed);
+        for (Subscriber s : subscribers) {
+            if (s.outbox.isEmpty()) s.enqueue(SseEmitter.event().comment("heartbeat"));
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        dispatcher.execute(() -> subscribers.forEach(Subscriber::finish));
+        dispatcher.shutdown();
+        dispatcher.awaitTermination(1, TimeUnit.SECONDS);
+        senders.shutdown();
+        senders.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        // only the dispatcher adds, and only while there is room for a page, so it never blocks
+        private final BlockingQueue<SseEmitter.SseEventBuilder> outbox = new LinkedBlockingQueue<>(OUTBOX_CAPACITY);
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile boolean closed;
+        // skipped by the dispatcher for a full outbox; the sender resumes delivery once it has drained
+        private volatile boolean paused;
+        // complete the emitter once the outbox is sent
+        private volatile boolean finishing;
+        // seq of the last change queued; only touched on the dispatcher thread
+        private long cursor;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        boolean hasRoomForPage() {
+            return outbox.remainingCapacity() >= PAGE_SIZE;
+        }
+
+        // set before the flush, so either a running drain sees it at its end or the flush starts one that does
+        void pause() {
+            paused = true;
+            flush();
+        }
+
+        void enqueue(SseEmitter.SseEventBuilder event) {
+            if (outbox.offer(event)) flush();
+        }
+
+        // no more events; the dispatcher forgets the subscriber and the sender completes the stream
+        void finish() {
+            closed = true;
+            finishing = true;
+            flush();
+        }
+
+        private void flush() {
+            if (sending.compareAndSet(false, true)) senders.execute(this::drain);
+        }
+
+        // sender thread only
+        private void drain() {
+            SseEmitter.SseEventBuilder event;
+            while ((event = outbox.poll()) != null) {
+                try {
+                    emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    // the client went away; the container completes the emitter
+                    closed = true;
+                    outbox.clear();
+                }
+            }
+            if (finishing) {
+                finishing = false;
+                emitter.complete();
+            }
+            sending.set(false);
+            // events queued after the last poll, before the flag was cleared
+            if (!outbox.isEmpty() || finishing) {
+                flush();
+            } else if (paused && !closed) {
+                paused = false;
+                scheduleBroadcast();
+            }
+        }
+    }
+}
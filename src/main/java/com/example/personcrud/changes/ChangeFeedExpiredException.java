@@ -0,0 +1,24 @@
+package com.example.personcrud.changes;
+
+/**
+ * The reader's cursor is older than the newest purged tombstone, so it may have missed deletes.
+ */
+public class ChangeFeedExpiredException extends RuntimeException {
+
+    private final long since;
+    private final long horizon;
+
+    public ChangeFeedExpiredException(long since, long horizon) {
+        super("Changes since " + since + " are no longer available, reload and follow the feed from a new cursor");
+        this.since = since;
+        this.horizon = horizon;
+    }
+
+    public long getSince() {
+        return since;
+    }
+
+    public long getHorizon() {
+        return horizon;
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.personcrud.changes;
+
+import com.example.personcrud.capture.CaptureScope;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * The {@code change_log} table: the latest change of every Person and Course, numbered by a sequence
+ * that only grows. Rows are written in the transaction that made the change, after Hibernate's final
+ * flush and before the JDBC commit.
+ * <p>
+ * Sequence numbers come from the {@code change_log_counter} row, which a writer locks for update and
+ * raises in its own transaction. The database holds that lock until the commit has finished, so numbers
+ * are distinct and become visible in the order they were handed out, across every instance writing the
+ * database. Without it a reader could see seq 12 committed, move its cursor past it, and never see
+ * seq 11 when that commits a moment later. Only the short tail of a writing transaction is serialized;
+ * everything before its final flush still runs concurrently.
+ */
+public class ChangeLog implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeLog.class);
+
+    // committed transactions only; a writer holding the row does not block this read
+    private static final String HEAD = "select seq from change_log_counter where id = 1";
+
+    // entity names as they appear in the log and the feed
+    public static final String PERSON = "Person", COURSE = "Course";
+
+    public enum Operation {
+        CREATE, UPDATE, DELETE
+    }
+
+    public record Entry(long seq, String entity, long entityId, Operation operation, Instant changedAt) {
+    }
+
+    private final ChangeProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final List<LongConsumer> commitListeners = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService scheduler;
+
+    public ChangeLog(ChangeProperties properties, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Records a change to be written when the session's transaction commits. Several changes to one
+     * entity in a transaction collapse into one; an entity created and deleted in it leaves nothing.
+     */
+    public void record(SessionImplementor session, String entity, Long id, Operation operation) {
+        if (!properties.isEnabled() || CaptureScope.isSuppressed() || id == null) return;
+        Pending pending = TransactionSynchronizationManager.isSynchronizationActive()
+                ? (Pending) TransactionSynchronizationManager.getResource(this) : null;
+        if (pending == null) {
+            pending = new Pending();
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.bindResource(this, pending);
+            }
+            session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) pending);
+            session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) pending);
+        }
+        pending.add(entity, id, operation);
+    }
+
+    /**
+     * Called with the highest committed seq after every transaction that wrote to the log.
+     */
+    public void onCommit(LongConsumer listener) {
+        commitListeners.add(listener);
+    }
+
+    // up to limit entries after since, oldest first; runs in the caller's transaction
+    public List<Entry> readAfter(long since, int limit) {
+        return jdbcTemplate.query("select seq, entity, entity_id, operation, changed_at from change_log "
+                        + "where seq > ? order by seq fetch first ? rows only",
+                (rs, i) -> new Entry(rs.getLong(1), rs.getString(2), rs.getLong(3), Operation.valueOf(rs.getString(4)),
+                        rs.getTimestamp(5).toInstant()),
+                since, limit);
+    }
+
+    // readers with a cursor below this may have missed purged tombstones
+    public long horizon() {
+        Long seq = jdbcTemplate.queryForObject("select seq from change_log_horizon where id = 1", Long.class);
+        return seq == null ? 0 : seq;
+    }
+
+    // the cursor a new reader starts from
+    public long head() {
+        Long seq = jdbcTemplate.queryForObject(HEAD, Long.class);
+        return seq == null ? 0 : seq;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        long interval = properties.getCompactionInterval().toMillis();
+        if (!properties.isEnabled() || interval <= 0) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "change-log-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                compact();
+            } catch (RuntimeException e) {
+                log.warn("Change log compaction failed", e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Purges tombstones older than the retention and raises the horizon to the newest purged one.
+     * Returns the number of rows removed.
+     */
+    public int compact() {
+        Timestamp cutoff = Timestamp.from(Instant.now().minus(properties.getRetention()));
+        Integer purged = transactionTemplate.execute(status -> {
+            Long upTo = jdbcTemplate.queryForObject(
+                    "select max(seq) from change_log where operation = 'DELETE' and changed_at < ?", Long.class, cutoff);
+            if (upTo == null) return 0;
+            jdbcTemplate.update("update change_log_horizon set seq = greatest(seq, ?) where id = 1", upTo);
+            return jdbcTemplate.update("delete from change_log where operation = 'DELETE' and seq <= ?", upTo);
+        });
+        if (purged != null && purged > 0) log.info("Purged {} change log tombstones", purged);
+        return purged == null ? 0 : purged;
+    }
+
+    private void write(Pending pending, SessionImplementor session) {
+        if (pending.changes.isEmpty()) return;
+        session.doWork(connection -> {
+            long seq = lockCounter(connection);
+            Timestamp now = Timestamp.from(Instant.now());
+            try (PreparedStatement delete = connection.prepareStatement(
+                    "delete from change_log where entity = ? and entity_id = ?");
+                 PreparedStatement insert = connection.prepareStatement(
+                         "insert into change_log (seq, entity, entity_id, operation, changed_at) values (?, ?, ?, ?, ?)")) {
+                for (Map.Entry<Key, Operation> change : pending.changes.entrySet()) {
+                    Key key = change.getKey();
+                    // a new entity has no earlier entry to replace
+                    if (change.getValue() != Operation.CREATE) {
+                        delete.setString(1, key.entity());
+                        delete.setLong(2, key.id());
+                        delete.addBatch();
+                    }
+                    insert.setLong(1, ++seq);
+                    insert.setString(2, key.entity());
+                    insert.setLong(3, key.id());
+                    insert.setString(4, change.getValue().name());
+                    insert.setTimestamp(5, now);
+                    insert.addBatch();
+                }
+                delete.executeBatch();
+                insert.executeBatch();
+            }
+            try (PreparedStatement update = connection.prepareStatement("update change_log_counter set seq = ? where id = 1")) {
+                update.setLong(1, seq);
+                update.executeUpdate();
+            }
+            pending.seq = seq;
+        });
+    }
+
+    // a rolled-back transaction also rolls back its raise of the counter, so it leaves no gap
+    private void finish(Pending pending, boolean success) {
+        TransactionSynchronizationManager.unbindResourceIfPossible(this);
+        if (!success || pending.seq == 0) return;
+        for (LongConsumer listener : commitListeners) {
+            try {
+                listener.accept(pending.seq);
+            } catch (RuntimeException e) {
+                log.warn("Change log listener failed", e);
+            }
+        }
+    }
+
+    // the row stays locked until this transaction commits or rolls back
+    private static long lockCounter(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(HEAD + " for update")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    private record Key(String entity, long id) {
+    }
+
+    private final class Pending implements BeforeTransactionCompletionProcess, AfterTransactionCompletionProcess {
+
+        private final Map<Key, Operation> changes = new LinkedHashMap<>();
+        // the highest seq written, 0 when nothing was
+        private long seq;
+
+        void add(String entity, long id, Operation operation) {
+            Key key = new Key(entity, id);
+            Operation previous = changes.get(key);
+            if (previous == Operation.CREATE && operation == Operation.DELETE) {
+                changes.remove(key);
+            } else if (previous != Operation.CREATE) {
+                changes.put(key, operation);
+            }
+        }
+
+        @Override
+        public void doBeforeTransactionCompletion(SessionImplementor session) {
+            write(this, session);
+        }
+
+        @Override
+        public void doAfterTransactionCompletion(boolean success, SharedSessionContractImplementor session) {
+            finish(this, success);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.personcrud.changes;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Change feed of Person and Course writes ({@code app.changes.*}).
+ */
+@ConfigurationProperties(prefix = "app.changes")
+public class ChangeProperties {
+
+    private boolean enabled = true;
+
+    // tombstones of deleted entities are kept this long; clients offline for longer must reload everything
+    private Duration retention = Duration.ofDays(7);
+
+    // how often expired tombstones are purged; 0 disables it
+    private Duration compactionInterval = Duration.ofHours(1);
+
+    // SSE connections are closed after this long and the browser reconnects with Last-Event-ID
+    private Duration streamTimeout = Duration.ofMinutes(30);
+
+    // comment lines sent on idle streams so proxies keep them open and dead clients are noticed
+    private Duration heartbeat = Duration.ofSeconds(15);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getRetention() {
+        return retention;
+    }
+
+    public void setRetention(Duration retention) {
+        this.retention = retention;
+    }
+
+    public Duration getCompactionInterval() {
+        return compactionInterval;
+    }
+
+    public void setCompactionInterval(Duration compactionInterval) {
+        this.compactionInterval = compactionInterval;
+    }
+
+    public Duration getStreamTimeout() {
+        return streamTimeout;
+    }
+
+    public void setStreamTimeout(Duration streamTimeout) {
+        this.streamTimeout = streamTimeout;
+    }
+
+    public Duration getHeartbeat() {
+        return heartbeat;
+    }
+
+    public void setHeartbeat(Duration heartbeat) {
+        this.heartbeat = heartbeat;
+    }
+}
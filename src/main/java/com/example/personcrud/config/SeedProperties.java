@@ -0,0 +1,114 @@
+package com.example.personcrud.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Size and pacing of the synthetic data set generated on an empty database ({@code app.seed.*}).
+ */
+@ConfigurationProperties(prefix = "app.seed")
+public class SeedProperties {
+
+    private boolean enabled = true;
+
+    private int teachers = 4;
+
+    private int students = 20;
+
+    private int courses = 5;
+
+    // course sizes are log-normally distributed around this median
+    private int medianCourseSize = 4;
+
+    // same seed, same data set
+    private long randomSeed = 42;
+
+    // rows per transaction, and the unit of work handed to each thread
+    private int batchSize = 1000;
+
+    private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    // 0 means unthrottled
+    private long targetRowsPerSecond = 0;
+
+    private long progressInterval = 100_000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getTeachers() {
+        return teachers;
+    }
+
+    public void setTeachers(int teachers) {
+        this.teachers = teachers;
+    }
+
+    public int getStudents() {
+        return students;
+    }
+
+    public void setStudents(int students) {
+        this.students = students;
+    }
+
+    public int getCourses() {
+        return courses;
+    }
+
+    public void setCourses(int courses) {
+        this.courses = courses;
+    }
+
+    public int getMedianCourseSize() {
+        return medianCourseSize;
+    }
+
+    public void setMedianCourseSize(int medianCourseSize) {
+        this.medianCourseSize = medianCourseSize;
+    }
+
+    public long getRandomSeed() {
+        return randomSeed;
+    }
+
+    public void setRandomSeed(long randomSeed) {
+        this.randomSeed = randomSeed;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public long getTargetRowsPerSecond() {
+        return targetRowsPerSecond;
+    }
+
+    public void setTargetRowsPerSecond(long targetRowsPerSecond) {
+        this.targetRowsPerSecond = targetRowsPerSecond;
+    }
+
+    public long getProgressInterval() {
+        return progressInterval;
+    }
+
+    public void setProgressInterval(long progressInterval) {
+        this.progressInterval = progressInterval;
+    }
+}
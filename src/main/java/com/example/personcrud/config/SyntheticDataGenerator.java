@@ -0,0 +1,250 @@
+package com.example.personcrud.config;
+
+import com.example.personcrud.capture.CaptureScope;
+import com.example.personcrud.model.Course;
+import com.example.personcrud.model.Person;
+import com.example.personcrud.model.Student;
+import com.example.personcrud.model.Teacher;
+import jakarta.persistence.EntityManager;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fills an empty database with a reproducible data set sized by {@link SeedProperties}.
+ * <p>
+ * Work is split into chunks of {@code batch-size} rows, each generated from its own seeded random
+ * stream and written in its own transaction, so the content does not depend on how many threads run.
+ * Generated ids are only reproducible with {@code threads=1}, because chunks draw from the shared
+ * id sequences in whatever order they finish.
+ */
+@Component
+@EnableConfigurationProperties(SeedProperties.class)
+public class SyntheticDataGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+
+    private static final String[] FIRST_NAMES = {
+            "Ada", "Alan", "Grace", "Katherine", "Edsger", "Barbara", "Donald", "Frances", "John", "Radia",
+            "Ken", "Margaret", "Dennis", "Hedy", "Niklaus", "Sophie", "Tim", "Annie", "Linus", "Mary",
+            "Claude", "Jean", "Guido", "Shafi", "Leslie", "Ivan", "Adele", "Bjarne", "Lynn", "James",
+            "Carl", "Joan", "Vint", "Evelyn", "Robin", "Susan", "Peter", "Elena", "Tony", "Marta"};
+
+    private static final String[] LAST_NAMES = {
+            "Lovelace", "Turing", "Hopper", "Johnson", "Dijkstra", "Liskov", "Knuth", "Allen", "Backus", "Perlman",
+            "Thompson", "Hamilton", "Ritchie", "Lamarr", "Wirth", "Wilson", "Lee", "Easley", "Torvalds", "Keller",
+            "Shannon", "Sammet", "Rossum", "Goldwasser", "Lamport", "Sutherland", "Goldberg", "Stroustrup", "Conway", "Gosling",
+            "Hewitt", "Clarke", "Cerf", "Berezin", "Milner", "Kare", "Naur", "Smith", "Hoare", "Kowalska"};
+
+    private static final String[] SUBJECTS = {
+            "Algebra", "Calculus", "Statistics", "Physics", "Chemistry", "Biology", "History", "Literature",
+            "Philosophy", "Economics", "Databases", "Algorithms", "Networks", "Compilers", "Geography", "Music"};
+
+    // spread of the log-normal course size distribution: most courses are near the median, a few are very large
+    private static final double COURSE_SIZE_SIGMA = 0.6;
+
+    // salts separating the random streams of the three generation phases
+    private static final long TEACHERS = 1, STUDENTS = 2, COURSES = 3;
+
+    private final SeedProperties properties;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    public SyntheticDataGenerator(SeedProperties properties, EntityManager entityManager,
+                                  TransactionTemplate transactionTemplate, JdbcTemplate jdbcTemplate) {
+        this.properties = properties;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void generate() {
+        Progress progress = new Progress();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, properties.getThreads()));
+        try {
+            long[] teacherIds = insertPersons(pool, progress, TEACHERS, properties.getTeachers());
+            long[] studentIds = insertPersons(pool, progress, STUDENTS, properties.getStudents());
+            long enrollments = insertCourses(pool, progress, teacherIds, studentIds);
+            log.info("Seeded {} teachers, {} students, {} courses and {} enrollments ({} rows in {} ms, {} rows/s)",
+                    teacherIds.length, studentIds.length, properties.getCourses(), enrollments,
+                    progress.rows(), progress.elapsedMillis(), progress.rowsPerSecond());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private long[] insertPersons(ExecutorService pool, Progress progress, long kind, int count) {
+        long[] ids = new long[count];
+        List<Callable<Long>> chunks = new ArrayList<>();
+        int batchSize = Math.max(1, properties.getBatchSize());
+        for (int from = 0; from < count; from += batchSize) {
+            int start = from, end = Math.min(count, from + batchSize);
+            chunks.add(() -> {
+                SplittableRandom random = random(kind, start / batchSize);
+                untracked(() -> transactionTemplate.executeWithoutResult(status -> {
+                    ignoreSecondLevelCache();
+                    for (int i = start; i < end; i++) {
+                        Person person = person(kind, i, random);
+                        entityManager.persist(person);
+                        ids[i] = person.getId();
+                    }
+                    entityManager.flush();
+                    entityManager.clear();
+                }));
+                progress.add(end - start);
+                return (long) (end - start);
+            });
+        }
+        runAll(pool, chunks);
+        return ids;
+    }
+
+    // courses and their enrollments are written chunk by chunk in the same transaction
+    private long insertCourses(ExecutorService pool, Progress progress, long[] teacherIds, long[] studentIds) {
+        int count = properties.getCourses();
+        if (count > 0 && teacherIds.length == 0) {
+            throw new IllegalStateException("app.seed.courses requires at least one teacher");
+        }
+        List<Callable<Long>> chunks = new ArrayList<>();
+        int batchSize = Math.max(1, properties.getBatchSize());
+        for (int from = 0; from < count; from += batchSize) {
+            int start = from, end = Math.min(count, from + batchSize);
+            chunks.add(() -> {
+                SplittableRandom random = random(COURSES, start / batchSize);
+                long[] enrolled = new long[1];
+                untracked(() -> enrolled[0] = transactionTemplate.execute(status -> {
+                    ignoreSecondLevelCache();
+                    List<Object[]> rows = new ArrayList<>();
+                    for (int i = start; i < end; i++) {
+                        Course course = new Course(SUBJECTS[i % SUBJECTS.length] + " " + (i / SUBJECTS.length + 101),
+                                entityManager.getReference(Teacher.class, teacherIds[random.nextInt(teacherIds.length)]));
+                        entityManager.persist(course);
+                        for (int ordinal : sample(random, courseSize(random, studentIds.length), studentIds.length)) {
+                            rows.add(new Object[]{course.getId(), studentIds[ordinal]});
+                        }
+                    }
+                    entityManager.flush();
+                    entityManager.clear();
+                    jdbcTemplate.batchUpdate("insert into course_students (course_id, student_id) values (?, ?)", rows);
+                    return (long) rows.size();
+                }));
+                progress.add(end - start + enrolled[0]);
+                return enrolled[0];
+            });
+        }
+        return runAll(pool, chunks);
+    }
+
+    private static Person person(long kind, int index, SplittableRandom random) {
+        String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        // the index keeps emails unique however often a name pair repeats
+        String email = (first + "." + last + "." + (kind == TEACHERS ? "t" : "s") + index + "@example.com").toLowerCase(Locale.ROOT);
+        return kind == TEACHERS ? new Teacher(first, last, email) : new Student(first, last, email);
+    }
+
+    private int courseSize(SplittableRandom random, int students) {
+        double size = Math.max(1, properties.getMedianCourseSize()) * Math.exp(COURSE_SIZE_SIGMA * random.nextGaussian());
+        return (int) Math.min(students, Math.max(1, Math.round(size)));
+    }
+
+    // Floyd's algorithm: k distinct ordinals out of n without materializing the range
+    private static int[] sample(SplittableRandom random, int k, int n) {
+        Set<Integer> chosen = new HashSet<>(k * 2);
+        for (int j = n - k; j < n; j++) {
+            int t = random.nextInt(j + 1);
+            chosen.add(chosen.contains(t) ? j : t);
+        }
+        return chosen.stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    private SplittableRandom random(long phase, long chunk) {
+        long seed = properties.getRandomSeed() * 0x9E3779B97F4A7C15L + phase * 0xBF58476D1CE4E5B9L + chunk;
+        return new SplittableRandom(new SplittableRandom(seed).nextLong());
+    }
+
+    // generated rows are not changes anyone made, and would flood the audit log and the change feed
+    private static void untracked(Runnable action) {
+        CaptureScope.withoutCapture(action);
+    }
+
+    // millions of freshly inserted rows would only evict the entries that are actually hot later
+    private void ignoreSecondLevelCache() {
+        entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+    }
+
+    private static long runAll(ExecutorService pool, List<Callable<Long>> chunks) {
+        long total = 0;
+        try {
+            for (Future<Long> f : pool.invokeAll(chunks)) total += f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Seeding interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Seeding failed", e.getCause());
+        }
+        return total;
+    }
+
+    /**
+     * Counts written rows, logs every {@code progress-interval} rows and, when a target rate is set,
+     * makes the finishing chunk's thread sleep until the overall rate is back under it.
+     */
+    private final class Progress {
+
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong rows = new AtomicLong();
+        private final AtomicLong nextReport = new AtomicLong(Math.max(1, properties.getProgressInterval()));
+
+        void add(long count) {
+            long done = rows.addAndGet(count);
+            long next = nextReport.get();
+            if (done >= next && nextReport.compareAndSet(next, done + Math.max(1, properties.getProgressInterval()))) {
+                log.info("Seeding: {} rows written, {} rows/s", done, rowsPerSecond());
+            }
+            long target = properties.getTargetRowsPerSecond();
+            if (target > 0) {
+                long aheadNanos = done * 1_000_000_000L / target - (System.nanoTime() - startNanos);
+                if (aheadNanos > 0) {
+                    try {
+                        Thread.sleep(aheadNanos / 1_000_000, (int) (aheadNanos % 1_000_000));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+
+        long rows() {
+            return rows.get();
+        }
+
+        long elapsedMillis() {
+            return (System.nanoTime() - startNanos) / 1_000_000;
+        }
+
+        long rowsPerSecond() {
+            long nanos = System.nanoTime() - startNanos;
+            return nanos == 0 ? 0 : rows.get() * 1_000_000_000L / nanos;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.personcrud.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Request threading: optional virtual threads for Tomcat and MVC async work. API requests in flight are
+ * then bounded by the admission control limits instead of Tomcat's thread pool; the static frontend,
+ * actuator and H2 console are not admission-controlled and have no such bound.
+ */
+@Configuration
+public class ThreadingConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ThreadingConfig.class);
+
+    /**
+     * Only loaded with {@code app.threads.virtual=true}. The executor is looked up reflectively so the
+     * code still compiles for Java 17; starting in this mode on an older runtime fails fast.
+     */
+    @Configuration
+    @ConditionalOnProperty(name = "app.threads.virtual", havingValue = "true")
+    static class VirtualThreads implements WebMvcConfigurer {
+
+        private final ExecutorService executor = newVirtualThreadPerTaskExecutor();
+
+        @Bean
+        public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+            log.info("Serving requests on virtual threads");
+            return protocolHandler -> protocolHandler.setExecutor(executor);
+        }
+
+        // StreamingResponseBody and other async handlers run here instead of the default task pool
+        @Override
+        public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+            configurer.setTaskExecutor(new TaskExecutorAdapter(executor));
+        }
+
+        private static ExecutorService newVirtualThreadPerTaskExecutor() {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("app.threads.virtual=true needs a Java 21 runtime (build with -Pjava21), running on "
+                        + Runtime.version(), e);
+            }
+        }
+    }
+}
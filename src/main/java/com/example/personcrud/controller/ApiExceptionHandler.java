@@ -0,0 +1,67 @@
+package com.example.personcrud.controller;
+
+import com.example.personcrud.changes.ChangeFeedExpiredException;
+import com.example.personcrud.enrollment.EnrollmentModelUnavailableException;
+import com.example.personcrud.enrollment.InvalidSetQueryException;
+import com.example.personcrud.service.InvalidFieldsException;
+import com.example.personcrud.service.InvalidReferenceException;
+import com.example.personcrud.service.VersionMismatchException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    @ExceptionHandler(InvalidReferenceException.class)
+    public ProblemDetail invalidReference(InvalidReferenceException e) {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+        problem.setProperty("field", e.getField());
+        problem.setProperty("unknownIds", e.getUnknownIds());
+        problem.setProperty("wrongTypeIds", e.getWrongTypeIds());
+        problem.setProperty("errors", e.getErrors());
+        return problem;
+    }
+
+    @ExceptionHandler(InvalidFieldsException.class)
+    public ProblemDetail invalidFields(InvalidFieldsException e) {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+        problem.setProperty("unknownFields", e.getUnknownFields());
+        problem.setProperty("allowedFields", e.getAllowedFields());
+        return problem;
+    }
+
+    @ExceptionHandler(VersionMismatchException.class)
+    public ProblemDetail versionMismatch(VersionMismatchException e) {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.PRECONDITION_FAILED,
+                "If-Match does not match the current version");
+        problem.setProperty("currentVersion", e.getCurrentVersion());
+        return problem;
+    }
+
+    @ExceptionHandler(ChangeFeedExpiredException.class)
+    public ProblemDetail changeFeedExpired(ChangeFeedExpiredException e) {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.GONE, e.getMessage());
+        problem.setProperty("since", e.getSince());
+        problem.setProperty("horizon", e.getHorizon());
+        return problem;
+    }
+
+    @ExceptionHandler(InvalidSetQueryException.class)
+    public ProblemDetail invalidSetQuery(InvalidSetQueryException e) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+
+    @ExceptionHandler(EnrollmentModelUnavailableException.class)
+    public ProblemDetail enrollmentModelUnavailable(EnrollmentModelUnavailableException e) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+    }
+
+    // a concurrent writer committed between our read and our flush
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ProblemDetail optimisticLock(ObjectOptimisticLockingFailureException e) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, "The resource was modified concurrently, reload and retry");
+    }
+}
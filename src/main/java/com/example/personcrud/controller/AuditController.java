@@ -0,0 +1,39 @@
+package com.example.personcrud.controller;
+
+import com.example.personcrud.audit.AuditEvent;
+import com.example.personcrud.audit.AuditLog;
+import com.example.personcrud.dto.CursorPage;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/audit")
+public class AuditController {
+
+    private final AuditLog auditLog;
+
+    public AuditController(AuditLog auditLog) {
+        this.auditLog = auditLog;
+    }
+
+    /**
+     * Replays the audit log from just after sequence number {@code after}. {@code next} is the
+     * {@code after} for the following page, or null once the reader has caught up.
+     */
+    @GetMapping
+    public CursorPage<AuditEvent> replay(@RequestParam(defaultValue = "0") long after,
+                                         @RequestParam(defaultValue = "" + PersonController.DEFAULT_PAGE_SIZE) int limit) {
+        int size = Math.max(1, Math.min(limit, PersonController.MAX_PAGE_SIZE));
+        // read one event past the page to know whether there is more
+        List<AuditEvent> events = auditLog.replay(after, size + 1);
+        if (events.size() <= size) {
+            return new CursorPage<>(events, null);
+        }
+        List<AuditEvent> items = events.subList(0, size);
+        return new CursorPage<>(items, items.get(size - 1).getSeq());
+    }
+}
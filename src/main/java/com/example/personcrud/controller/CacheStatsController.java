@@ -0,0 +1,38 @@
+package com.example.personcrud.controller;
+
+import com.example.personcrud.dto.CacheRegionStats;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.cache.CacheManager;
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/cache")
+public class CacheStatsController {
+
+    private final CacheManager cacheManager;
+
+    public CacheStatsController(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @GetMapping("/stats")
+    public List<CacheRegionStats> stats() {
+        List<CacheRegionStats> regions = new ArrayList<>();
+        for (String name : cacheManager.getCacheNames()) {
+            javax.cache.Cache<Object, Object> cache = cacheManager.getCache(name);
+            if (cache == null) continue;
+            Cache<?, ?> caffeine = cache.unwrap(Cache.class);
+            CacheStats s = caffeine.stats();
+            regions.add(new CacheRegionStats(name, caffeine.estimatedSize(), s.hitCount(), s.missCount(),
+                    s.evictionCount(), s.hitRate()));
+        }
+        regions.sort((a, b) -> a.getRegion().compareTo(b.getRegion()));
+        return regions;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.personcrud.controller;
+
+import com.example.personcrud.changes.ChangeFeed;
+import com.example.personcrud.dto.ChangeBatch;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/changes")
+public class ChangeController {
+
+    private final ChangeFeed changeFeed;
+
+    public ChangeController(ChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    /**
+     * Person and Course changes after {@code since}, each with the entity's current state. Without
+     * {@code since} only the cursor to start from is returned. 410 means the cursor is too old:
+     * reload the collections and continue from a fresh cursor.
+     */
+    @GetMapping
+    public ChangeBatch changes(@RequestParam(required = false) Long since,
+                               @RequestParam(defaultValue = "" + PersonController.DEFAULT_PAGE_SIZE) int limit) {
+        int size = Math.max(1, Math.min(limit, PersonController.MAX_PAGE_SIZE));
+        return changeFeed.read(since, size);
+    }
+
+    // a reconnecting EventSource sends the id of the last event it saw, which wins over since
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(required = false) Long since,
+                             @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId,
+                             HttpServletResponse response) {
+        // nginx would otherwise buffer the stream
+        response.setHeader("X-Accel-Buffering", "no");
+        return changeFeed.subscribe(lastEventId != null ? lastEventId : since);
+    }
+}
@@ -1,73 +1,116 @@
 package com.example.personcrud.controller;
 
 import com.example.personcrud.dto.CourseDto;
-import com.example.personcrud.model.Course;
-import com.example.personcrud.model.Student;
-import com.example.personcrud.model.Teacher;
+import com.example.personcrud.dto.CourseStats;
+import com.example.personcrud.dto.TeacherLoad;
+import com.example.personcrud.enrollment.EnrollmentModel;
+import com.example.personcrud.mapper.CourseMapper;
 import com.example.personcrud.service.CourseService;
-import com.example.personcrud.repository.PersonRepository;
+import com.example.personcrud.service.FieldSet;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/courses")
 public class CourseController {
 
     private final CourseService service;
-    private final PersonRepository personRepository;
+    private final JsonArrayWriter arrayWriter;
 
-    public CourseController(CourseService service, PersonRepository personRepository) {
+    public CourseController(CourseService service, ObjectMapper objectMapper) {
         this.service = service;
-        this.personRepository = personRepository;
+        this.arrayWriter = new JsonArrayWriter(objectMapper);
     }
 
-    private CourseDto toDto(Course c) {
-        List<Long> studentIds = c.getStudents().stream().map(Student::getId).collect(Collectors.toList());
-        Long teacherId = c.getTeacher() != null ? c.getTeacher().getId() : null;
-        return new CourseDto(c.getId(), c.getName(), teacherId, studentIds);
+    // the ETag is checked before the rows are loaded, so an unchanged table costs one aggregate query;
+    // otherwise courses are written chunk by chunk as they are folded
+    @GetMapping
+    public void list(WebRequest request, HttpServletRequest servletRequest, HttpServletResponse response)
+            throws IOException, HttpMediaTypeNotAcceptableException {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        if (request.checkNotModified(service.collectionETag())) {
+            return;
+        }
+        arrayWriter.write(servletRequest, response, CourseDto.class, service::streamAllDtos);
     }
 
-    private Course toEntity(CourseDto d) {
-        Course c = new Course();
-        c.setId(d.getId());
-        c.setName(d.getName());
-        if (d.getTeacherId() != null) {
-            personRepository.findById(d.getTeacherId()).ifPresent(p -> c.setTeacher((Teacher) p));
+    // sparse fieldset; without studentIds the enrollment join is skipped entirely
+    @GetMapping(params = "fields")
+    public ResponseEntity<List<Map<String, Object>>> listFields(@RequestParam String fields, WebRequest request) {
+        FieldSet selection = FieldSet.parse(fields, CourseService.FIELDS);
+        String etag = service.collectionETag();
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
         }
-        if (d.getStudentIds() != null) {
-            List<Student> students = d.getStudentIds().stream()
-                    .map(id -> personRepository.findById(id).map(p -> (Student) p).orElse(null))
-                    .filter(java.util.Objects::nonNull)
-                    .collect(Collectors.toList());
-            c.setStudents(students);
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(service.findAllFields(selection));
+    }
+
+    // enrollment counts per course; any enrollment change bumps the course version, so the collection ETag covers it.
+    // The tag is taken with the counts, not from the table, which the model may not have caught up with yet
+    @GetMapping("/stats")
+    public ResponseEntity<List<CourseStats>> stats(WebRequest request) {
+        EnrollmentModel.CourseTable table = service.findStats();
+        String etag = table.version().toETag("courses");
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
         }
-        return c;
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(table.stats());
     }
 
-    @GetMapping
-    public List<CourseDto> list() {
-        return service.findAll().stream().map(this::toDto).collect(Collectors.toList());
+    @GetMapping("/teacher-load")
+    public List<TeacherLoad> teacherLoad() {
+        return service.findTeacherLoad();
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<CourseDto> get(@PathVariable Long id) {
-        return service.findById(id).map(this::toDto).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<CourseDto> get(@PathVariable Long id, WebRequest request) {
+        return service.findDtoById(id)
+                .map(c -> {
+                    String etag = ETags.of(c.getVersion());
+                    if (request.checkNotModified(etag)) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).<CourseDto>build();
+                    }
+                    return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(c);
+                })
+                .orElse(ResponseEntity.notFound().build());
     }
 
     @PostMapping
     public ResponseEntity<CourseDto> create(@Valid @RequestBody CourseDto dto) {
-        Course created = service.create(toEntity(dto));
-        return ResponseEntity.status(HttpStatus.CREATED).body(toDto(created));
+        CourseDto created = service.create(CourseMapper.toEntity(dto));
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(ETags.of(created.getVersion())).body(created);
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<CourseDto> update(@PathVariable Long id, @Valid @RequestBody CourseDto dto) {
-        return service.update(id, toEntity(dto)).map(this::toDto).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<CourseDto> update(@PathVariable Long id, @Valid @RequestBody CourseDto dto,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return service.update(id, CourseMapper.toEntity(dto), ETags.requiredVersion(ifMatch))
+                .map(c -> ResponseEntity.ok().eTag(ETags.of(c.getVersion())).body(c))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/{id}/students")
+    public ResponseEntity<CourseDto> addStudents(@PathVariable Long id, @RequestBody Set<Long> studentIds) {
+        return service.addStudents(id, studentIds).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/{id}/students")
+    public ResponseEntity<CourseDto> removeStudents(@PathVariable Long id, @RequestBody Set<Long> studentIds) {
+        return service.removeStudents(id, studentIds).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
     }
 
     @DeleteMapping("/{id}")
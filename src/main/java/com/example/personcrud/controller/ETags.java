@@ -0,0 +1,33 @@
+package com.example.personcrud.controller;
+
+import com.example.personcrud.service.VersionMismatchException;
+
+/**
+ * Strong ETags for single resources are the quoted entity version.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String of(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Returns the version required by an If-Match header, or null when the update is unconditional
+     * (no header or "*"). A header that is not one of our ETags can never match.
+     */
+    static Long requiredVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) return null;
+        String tag = ifMatch.trim();
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.parseLong(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException ignored) {
+                // falls through to the mismatch below
+            }
+        }
+        throw new VersionMismatchException(null, null);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.personcrud.controller;
+
+import com.example.personcrud.dto.StudentSet;
+import com.example.personcrud.enrollment.EnrollmentModel;
+import com.example.personcrud.enrollment.EnrollmentModelUnavailableException;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/enrollments")
+public class EnrollmentController {
+
+    private final EnrollmentModel enrollmentModel;
+
+    public EnrollmentController(EnrollmentModel enrollmentModel) {
+        this.enrollmentModel = enrollmentModel;
+    }
+
+    /**
+     * Students matching a set expression over course rosters, e.g.
+     * {@code q=course:1 AND course:2 ANDNOT teacher:7}. {@code limit=0} returns only the count; pass
+     * {@code next} as {@code after} for the following page. 503 while the enrollment model is loading.
+     */
+    @GetMapping("/students")
+    public StudentSet students(@RequestParam String q,
+                               @RequestParam(required = false) Long after,
+                               @RequestParam(defaultValue = "" + PersonController.DEFAULT_PAGE_SIZE) int limit) {
+        int size = Math.max(0, Math.min(limit, PersonController.MAX_PAGE_SIZE));
+        return enrollmentModel.view().orElseThrow(EnrollmentModelUnavailableException::new).students(q, after, size);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.personcrud.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Writes a collection as an array straight to the servlet response, one element at a time, so the body
+ * is never held in memory and the first rows go out (chunked) before the last is read.
+ * <p>
+ * Unlike {@code StreamingResponseBody} this runs on the request thread, so the queries stay inside the
+ * request's SQL budget and replica routing. Sources read in chunks, one short transaction each, so no
+ * connection is held while a slow client drains the response. JSON, Smile and CBOR are negotiated from {@code Accept} like
+ * the message converters do. A failure after the first flush can only truncate the response.
+ */
+final class JsonArrayWriter {
+
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    private static final MediaType CBOR = MediaType.parseMediaType("application/cbor");
+
+    private final Map<MediaType, ObjectMapper> mappers = new LinkedHashMap<>();
+
+    JsonArrayWriter(ObjectMapper objectMapper) {
+        mappers.put(MediaType.APPLICATION_JSON, objectMapper);
+        mappers.put(SMILE, objectMapper.copyWith(new SmileFactory()));
+        mappers.put(CBOR, objectMapper.copyWith(new CBORFactory()));
+    }
+
+    <T> void write(HttpServletRequest request, HttpServletResponse response, Class<T> type, Consumer<Consumer<T>> source)
+            throws IOException, HttpMediaTypeNotAcceptableException {
+        MediaType mediaType = negotiate(request.getHeader(HttpHeaders.ACCEPT));
+        ObjectMapper mapper = mappers.get(mediaType);
+        // let the generator buffer decide when to flush instead of flushing every element
+        ObjectWriter writer = mapper.writerFor(type).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        response.setContentType(mediaType.toString());
+        try (JsonGenerator gen = mapper.getFactory().createGenerator(response.getOutputStream())) {
+            gen.writeStartArray();
+            source.accept(element -> {
+                try {
+                    writer.writeValue(gen, element);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            gen.writeEndArray();
+        }
+    }
+
+    // most preferred acceptable type (quality, then specificity); no Accept header means JSON
+    private MediaType negotiate(String accept) throws HttpMediaTypeNotAcceptableException {
+        if (accept == null || accept.isBlank()) return MediaType.APPLICATION_JSON;
+        List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+        MimeTypeUtils.sortBySpecificity(accepted);
+        for (MediaType candidate : accepted) {
+            for (MediaType produced : mappers.keySet()) {
+                if (candidate.isCompatibleWith(produced)) return produced;
+            }
+        }
+        throw new HttpMediaTypeNotAcceptableException(List.copyOf(mappers.keySet()));
+    }
+}
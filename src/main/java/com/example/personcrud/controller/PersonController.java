@@ -1,78 +1,269 @@
 package com.example.personcrud.controller;
 
+import com.example.personcrud.dto.BulkImportResult;
+import com.example.personcrud.dto.CourseStats;
+import com.example.personcrud.dto.CursorPage;
+import com.example.personcrud.dto.OffsetPage;
 import com.example.personcrud.dto.PersonDto;
+import com.example.personcrud.mapper.PersonMapper;
 import com.example.personcrud.model.Person;
-import com.example.personcrud.model.Student;
-import com.example.personcrud.model.Teacher;
+import com.example.personcrud.service.CourseService;
+import com.example.personcrud.service.FieldSet;
 import com.example.personcrud.service.PersonService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/persons")
 public class PersonController {
 
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
+
     private final PersonService service;
+    private final CourseService courseService;
+    private final ObjectMapper objectMapper;
+    private final JsonArrayWriter arrayWriter;
+    private final Validator validator;
+    private final int bulkChunkSize;
 
-    public PersonController(PersonService service) {
+    public PersonController(PersonService service, CourseService courseService, ObjectMapper objectMapper, Validator validator,
+                            @Value("${app.persons.bulk.chunk-size:1000}") int bulkChunkSize) {
         this.service = service;
+        this.courseService = courseService;
+        this.objectMapper = objectMapper;
+        this.arrayWriter = new JsonArrayWriter(objectMapper);
+        this.validator = validator;
+        this.bulkChunkSize = bulkChunkSize;
     }
 
-    private PersonDto toDto(Person p) {
-        PersonDto dto = new PersonDto(p.getId(), p.getFirstName(), p.getLastName(), p.getEmail());
-        if (p instanceof Teacher) dto.setPersonType("TEACHER");
-        else if (p instanceof Student) dto.setPersonType("STUDENT");
-        else dto.setPersonType("PERSON");
-        return dto;
+    // the ETag is checked before the rows are loaded, so an unchanged table costs one aggregate query;
+    // otherwise rows are written chunk by chunk as they are read
+    @GetMapping
+    public void list(WebRequest request, HttpServletRequest servletRequest, HttpServletResponse response)
+            throws IOException, HttpMediaTypeNotAcceptableException {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        if (request.checkNotModified(service.collectionETag())) {
+            return;
+        }
+        arrayWriter.write(servletRequest, response, PersonDto.class, sink -> service.streamAll(sink::accept));
     }
 
-    private Person toEntity(PersonDto d) {
-        Person p;
-        if ("TEACHER".equals(d.getPersonType())) {
-            p = new Teacher(d.getFirstName(), d.getLastName(), d.getEmail());
-        } else if ("STUDENT".equals(d.getPersonType())) {
-            p = new Student(d.getFirstName(), d.getLastName(), d.getEmail());
-        } else {
-            p = new Person(d.getFirstName(), d.getLastName(), d.getEmail());
+    // sparse fieldset, e.g. fields=id,firstName,lastName,personType for a selector; only those columns are queried
+    @GetMapping(params = {"fields", "!limit", "!after"})
+    public ResponseEntity<List<Map<String, Object>>> listFields(@RequestParam String fields, WebRequest request) {
+        FieldSet selection = FieldSet.parse(fields, PersonService.FIELDS);
+        String etag = service.collectionETag();
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
         }
-        p.setId(d.getId());
-        return p;
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(service.findAllFields(selection));
     }
 
-    @GetMapping
-    public List<PersonDto> list() {
-        return service.findAll().stream().map(this::toDto).collect(Collectors.toList());
+    @GetMapping(params = "limit")
+    public CursorPage<PersonDto> page(@RequestParam int limit, @RequestParam(required = false) Long after) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return service.findPage(after, size);
     }
 
-    @GetMapping("/search")
+    // a cursor without a limit pages with the default size instead of falling through to the full listing
+    @GetMapping(params = {"after", "!limit"})
+    public CursorPage<PersonDto> pageAfter(@RequestParam Long after) {
+        return page(DEFAULT_PAGE_SIZE, after);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> stream() {
+        // let the generator buffer decide when to flush instead of flushing every row
+        ObjectWriter writer = objectMapper.writerFor(PersonDto.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+                gen.setRootValueSeparator(new SerializedString("\n"));
+                service.streamAll(p -> {
+                    try {
+                        writer.writeValue(gen, p);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                gen.writeRaw('\n');
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @GetMapping(path = "/search", params = "lastName")
     public List<PersonDto> findByLastName(@RequestParam String lastName) {
-        return service.findByLastName(lastName).stream().map(this::toDto).collect(Collectors.toList());
+        return service.findByLastName(lastName);
+    }
+
+    /**
+     * Matches persons whose first name, last name or email starts with {@code q}, or with
+     * {@code fuzzy=true} ranks them by trigram similarity so misspelled queries still match.
+     * Results are ranked, not keyed, so pages are addressed by {@code offset}; {@code nextOffset} in
+     * the response is the offset of the following page.
+     */
+    @GetMapping(path = "/search", params = "q")
+    public OffsetPage<PersonDto> search(@RequestParam String q,
+                                        @RequestParam(defaultValue = "false") boolean fuzzy,
+                                        @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                        @RequestParam(defaultValue = "0") int offset) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        int from = Math.max(0, offset);
+        // probe one row past the page to know whether there is a next one
+        List<PersonDto> rows = fuzzy ? service.searchFuzzy(q, size + 1, from) : service.searchByPrefix(q, size + 1, from);
+        Integer next = rows.size() > size ? from + size : null;
+        List<PersonDto> items = rows.size() > size ? rows.subList(0, size) : rows;
+        return new OffsetPage<>(items, next);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<PersonDto> get(@PathVariable Long id) {
+    public ResponseEntity<PersonDto> get(@PathVariable Long id, WebRequest request) {
         return service.findById(id)
-                .map(this::toDto)
-                .map(ResponseEntity::ok)
+                .map(p -> {
+                    String etag = ETags.of(p.getVersion());
+                    if (request.checkNotModified(etag)) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).<PersonDto>build();
+                    }
+                    return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(p);
+                })
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    // enrolled courses for a student, taught courses for a teacher
+    @GetMapping("/{id}/courses")
+    public ResponseEntity<List<CourseStats>> courses(@PathVariable Long id) {
+        return courseService.findStatsByPerson(id).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(path = "/{id}/courses", params = "limit")
+    public ResponseEntity<CursorPage<CourseStats>> coursePage(@PathVariable Long id, @RequestParam int limit,
+                                                              @RequestParam(required = false) Long after) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return courseService.findStatsPageByPerson(id, after, size).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+    }
+
+    // as for the person listing, a cursor alone pages with the default size
+    @GetMapping(path = "/{id}/courses", params = {"after", "!limit"})
+    public ResponseEntity<CursorPage<CourseStats>> coursePageAfter(@PathVariable Long id, @RequestParam Long after) {
+        return coursePage(id, DEFAULT_PAGE_SIZE, after);
+    }
+
     @PostMapping
     public ResponseEntity<PersonDto> create(@Valid @RequestBody PersonDto person) {
-        Person created = service.create(toEntity(person));
-        return ResponseEntity.status(HttpStatus.CREATED).body(toDto(created));
+        PersonDto created = service.create(PersonMapper.toEntity(person));
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(ETags.of(created.getVersion())).body(created);
+    }
+
+    /**
+     * Imports a JSON array or an NDJSON stream of persons. Rows are parsed and validated one at a
+     * time and persisted in chunks, so the body is never held in memory as a whole. Invalid rows
+     * are reported by index and do not stop the import.
+     */
+    @PostMapping(path = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public BulkImportResult bulkCreate(HttpServletRequest request) throws IOException {
+        long start = System.nanoTime();
+        BulkImportResult result = new BulkImportResult();
+        List<Person> chunk = new ArrayList<>(bulkChunkSize);
+        List<Integer> chunkIndexes = new ArrayList<>(bulkChunkSize);
+        int index = 0;
+
+        // readValues iterates the elements of a top-level array as well as whitespace-separated values
+        try (MappingIterator<PersonDto> rows = objectMapper.readerFor(PersonDto.class).readValues(request.getInputStream())) {
+            while (rows.hasNextValue()) {
+                int row = index++;
+                PersonDto dto;
+                try {
+                    dto = rows.nextValue();
+                } catch (JsonParseException e) {
+                    // malformed JSON: the stream cannot be resynchronized, stop here
+                    result.getErrors().add(new BulkImportResult.RowError(row, e.getOriginalMessage()));
+                    break;
+                } catch (JsonMappingException e) {
+                    result.getErrors().add(new BulkImportResult.RowError(row, e.getOriginalMessage()));
+                    continue;
+                }
+                Set<ConstraintViolation<PersonDto>> violations = validator.validate(dto);
+                if (!violations.isEmpty()) {
+                    result.getErrors().add(new BulkImportResult.RowError(row, describe(violations)));
+                    continue;
+                }
+                chunk.add(PersonMapper.toEntity(dto));
+                chunkIndexes.add(row);
+                if (chunk.size() >= bulkChunkSize) {
+                    flushChunk(chunk, chunkIndexes, result);
+                }
+            }
+        }
+        flushChunk(chunk, chunkIndexes, result);
+        result.getErrors().sort(Comparator.comparingInt(BulkImportResult.RowError::getIndex));
+
+        long elapsedNanos = System.nanoTime() - start;
+        result.setReceived(index);
+        result.setElapsedMillis(elapsedNanos / 1_000_000);
+        result.setRowsPerSecond(elapsedNanos > 0 ? result.getImported() * 1e9 / elapsedNanos : 0);
+        return result;
+    }
+
+    private void flushChunk(List<Person> chunk, List<Integer> chunkIndexes, BulkImportResult result) {
+        if (chunk.isEmpty()) return;
+        try {
+            service.createAll(chunk);
+            result.setImported(result.getImported() + chunk.size());
+        } catch (DataAccessException e) {
+            // the chunk was rolled back as a whole
+            String message = e.getMostSpecificCause().getMessage();
+            for (Integer row : chunkIndexes) {
+                result.getErrors().add(new BulkImportResult.RowError(row, message));
+            }
+        }
+        chunk.clear();
+        chunkIndexes.clear();
+    }
+
+    private static String describe(Set<ConstraintViolation<PersonDto>> violations) {
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<PersonDto> update(@PathVariable Long id, @Valid @RequestBody PersonDto person) {
-        return service.update(id, toEntity(person))
-                .map(this::toDto)
-                .map(ResponseEntity::ok)
+    public ResponseEntity<PersonDto> update(@PathVariable Long id, @Valid @RequestBody PersonDto person,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return service.update(id, PersonMapper.toEntity(person), ETags.requiredVersion(ifMatch))
+                .map(p -> ResponseEntity.ok().eTag(ETags.of(p.getVersion())).body(p))
                 .orElse(ResponseEntity.notFound().build());
     }
 
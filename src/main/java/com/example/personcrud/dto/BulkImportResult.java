@@ -0,0 +1,96 @@
+package com.example.personcrud.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BulkImportResult {
+
+    private int received;
+
+    private int imported;
+
+    private long elapsedMillis;
+
+    private double rowsPerSecond;
+
+    private List<RowError> errors = new ArrayList<>();
+
+    public BulkImportResult() {
+    }
+
+    public int getReceived() {
+        return received;
+    }
+
+    public void setReceived(int received) {
+        this.received = received;
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    public void setImported(int imported) {
+        this.imported = imported;
+    }
+
+    public int getFailed() {
+        return errors.size();
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(double rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<RowError> errors) {
+        this.errors = errors;
+    }
+
+    // index is the zero-based position of the row in the request body
+    public static class RowError {
+
+        private int index;
+
+        private String message;
+
+        public RowError() {
+        }
+
+        public RowError(int index, String message) {
+            this.index = index;
+            this.message = message;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public void setIndex(int index) {
+            this.index = index;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.personcrud.dto;
+
+/**
+ * One entry of the change feed. {@code data} is the entity's current state, a {@link PersonDto} or
+ * {@link CourseDto}, and is null for deletes.
+ */
+public class Change {
+
+    private long seq;
+
+    private String entity;
+
+    private Long id;
+
+    private String operation;
+
+    private Object data;
+
+    public Change() {
+    }
+
+    public Change(long seq, String entity, Long id, String operation, Object data) {
+        this.seq = seq;
+        this.entity = entity;
+        this.id = id;
+        this.operation = operation;
+        this.data = data;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public String getEntity() {
+        return entity;
+    }
+
+    public void setEntity(String entity) {
+        this.entity = entity;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    public Object getData() {
+        return data;
+    }
+
+    public void setData(Object data) {
+        this.data = data;
+    }
+}
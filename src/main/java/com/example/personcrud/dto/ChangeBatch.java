@@ -0,0 +1,50 @@
+package com.example.personcrud.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Changes after a cursor. {@code next} is the {@code since} for the following call, and {@code more}
+ * tells whether that call would return changes right away.
+ */
+public class ChangeBatch {
+
+    private List<Change> changes = new ArrayList<>();
+
+    private long next;
+
+    private boolean more;
+
+    public ChangeBatch() {
+    }
+
+    public ChangeBatch(List<Change> changes, long next, boolean more) {
+        this.changes = changes;
+        this.next = next;
+        this.more = more;
+    }
+
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(List<Change> changes) {
+        this.changes = changes;
+    }
+
+    public long getNext() {
+        return next;
+    }
+
+    public void setNext(long next) {
+        this.next = next;
+    }
+
+    public boolean isMore() {
+        return more;
+    }
+
+    public void setMore(boolean more) {
+        this.more = more;
+    }
+}
@@ -18,6 +18,9 @@ public class CourseDto {
 
     private List<Long> studentIds = new ArrayList<>();
 
+    // optimistic-locking version, also sent as the ETag of GET /api/courses/{id}
+    private Long version;
+
     public CourseDto() {
     }
 
@@ -59,4 +62,12 @@ public class CourseDto {
     public void setStudentIds(List<Long> studentIds) {
         this.studentIds = studentIds;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
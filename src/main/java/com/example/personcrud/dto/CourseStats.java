@@ -0,0 +1,57 @@
+package com.example.personcrud.dto;
+
+/**
+ * A course with its enrollment count, computed by a grouped query instead of shipping the student ids.
+ */
+public class CourseStats {
+
+    private Long courseId;
+
+    private String name;
+
+    private Long teacherId;
+
+    private long studentCount;
+
+    public CourseStats() {
+    }
+
+    public CourseStats(Long courseId, String name, Long teacherId, long studentCount) {
+        this.courseId = courseId;
+        this.name = name;
+        this.teacherId = teacherId;
+        this.studentCount = studentCount;
+    }
+
+    public Long getCourseId() {
+        return courseId;
+    }
+
+    public void setCourseId(Long courseId) {
+        this.courseId = courseId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Long getTeacherId() {
+        return teacherId;
+    }
+
+    public void setTeacherId(Long teacherId) {
+        this.teacherId = teacherId;
+    }
+
+    public long getStudentCount() {
+        return studentCount;
+    }
+
+    public void setStudentCount(long studentCount) {
+        this.studentCount = studentCount;
+    }
+}
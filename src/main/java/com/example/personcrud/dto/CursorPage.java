@@ -0,0 +1,45 @@
+package com.example.personcrud.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * One page of a keyset-paginated listing. {@code next} is the cursor to pass as
+ * {@code after} for the following page, or null when this is the last page.
+ */
+public class CursorPage<T> {
+
+    private List<T> items = new ArrayList<>();
+
+    private Long next;
+
+    public CursorPage() {
+    }
+
+    public CursorPage(List<T> items, Long next) {
+        this.items = items;
+        this.next = next;
+    }
+
+    public <R> CursorPage<R> map(Function<? super T, ? extends R> mapper) {
+        return new CursorPage<>(items.stream().map(mapper).collect(Collectors.toList()), next);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public Long getNext() {
+        return next;
+    }
+
+    public void setNext(Long next) {
+        this.next = next;
+    }
+}
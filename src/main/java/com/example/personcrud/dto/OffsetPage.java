@@ -0,0 +1,40 @@
+package com.example.personcrud.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One page of a ranked result that has no stable key to resume from, e.g. a search. {@code nextOffset}
+ * is the {@code offset} to pass for the following page, or null when this is the last page; unlike
+ * {@link CursorPage#getNext()} it is a position, not an id.
+ */
+public class OffsetPage<T> {
+
+    private List<T> items = new ArrayList<>();
+
+    private Integer nextOffset;
+
+    public OffsetPage() {
+    }
+
+    public OffsetPage(List<T> items, Integer nextOffset) {
+        this.items = items;
+        this.nextOffset = nextOffset;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public Integer getNextOffset() {
+        return nextOffset;
+    }
+
+    public void setNextOffset(Integer nextOffset) {
+        this.nextOffset = nextOffset;
+    }
+}
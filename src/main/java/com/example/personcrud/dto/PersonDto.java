@@ -24,6 +24,9 @@ public class PersonDto {
     // discriminator type returned by the backend (PERSON, TEACHER, STUDENT)
     private String personType;
 
+    // optimistic-locking version, also sent as the ETag of GET /api/persons/{id}
+    private Long version;
+
     public PersonDto() {
     }
 
@@ -79,4 +82,12 @@ public class PersonDto {
     public void setPersonType(String personType) {
         this.personType = personType;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
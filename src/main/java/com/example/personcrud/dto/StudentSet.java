@@ -0,0 +1,50 @@
+package com.example.personcrud.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The result of a set query over students: how many match, and one page of their ids. {@code next} is
+ * the cursor to pass as {@code after} for the following page, or null when this is the last page.
+ */
+public class StudentSet {
+
+    private long count;
+
+    private List<Long> items = new ArrayList<>();
+
+    private Long next;
+
+    public StudentSet() {
+    }
+
+    public StudentSet(long count, List<Long> items, Long next) {
+        this.count = count;
+        this.items = items;
+        this.next = next;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public List<Long> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Long> items) {
+        this.items = items;
+    }
+
+    public Long getNext() {
+        return next;
+    }
+
+    public void setNext(Long next) {
+        this.next = next;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.personcrud.dto;
+
+/**
+ * How much a teacher teaches: {@code enrollmentCount} counts every (course, student) pair, while
+ * {@code studentCount} counts a student in several of the teacher's courses once.
+ */
+public class TeacherLoad {
+
+    private Long teacherId;
+
+    private String firstName;
+
+    private String lastName;
+
+    private long courseCount;
+
+    private long enrollmentCount;
+
+    private long studentCount;
+
+    public TeacherLoad() {
+    }
+
+    public TeacherLoad(Long teacherId, String firstName, String lastName, long courseCount, long enrollmentCount, long studentCount) {
+        this.teacherId = teacherId;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.courseCount = courseCount;
+        this.enrollmentCount = enrollmentCount;
+        this.studentCount = studentCount;
+    }
+
+    public Long getTeacherId() {
+        return teacherId;
+    }
+
+    public void setTeacherId(Long teacherId) {
+        this.teacherId = teacherId;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public long getCourseCount() {
+        return courseCount;
+    }
+
+    public void setCourseCount(long courseCount) {
+        this.courseCount = courseCount;
+    }
+
+    public long getEnrollmentCount() {
+        return enrollmentCount;
+    }
+
+    public void setEnrollmentCount(long enrollmentCount) {
+        this.enrollmentCount = enrollmentCount;
+    }
+
+    public long getStudentCount() {
+        return studentCount;
+    }
+
+    public void setStudentCount(long studentCount) {
+        this.studentCount = studentCount;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.personcrud.enrollment;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable adjacency lists of dense indexes in compressed sparse row layout: the targets of row
+ * {@code r} are {@code targets[offsets[r]..offsets[r + 1])}, sorted ascending. One {@code int[]} holds
+ * every edge, so a million enrollments cost 4 MB instead of a million boxed ids in per-course sets.
+ * <p>
+ * Rows changed since the layout was built live in an {@link IntOverlay} that shadows the packed row;
+ * {@link #compact} folds them back in once the overlay grows.
+ */
+final class Adjacency {
+
+    static final int[] NONE = new int[0];
+
+    private final int rows;
+    private final int[] offsets;
+    private final int[] targets;
+    private final IntOverlay<int[]> overlay;
+
+    private Adjacency(int rows, int[] offsets, int[] targets, IntOverlay<int[]> overlay) {
+        this.rows = rows;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.overlay = overlay;
+    }
+
+    /**
+     * Wraps a packed layout of {@code rows} rows; {@code offsets} needs {@code rows + 1} entries.
+     */
+    static Adjacency packed(int rows, int[] offsets, int[] targets) {
+        return new Adjacency(rows, offsets, targets, IntOverlay.empty());
+    }
+
+    /**
+     * Builds the reverse lists of a packed layout: row {@code t} of the result holds every row of
+     * {@code forward} that lists {@code t}, in ascending order. A counting sort, so it runs in O(rows + edges).
+     */
+    static Adjacency transpose(Adjacency forward, int rows) {
+        int edges = forward.offsets[forward.rows];
+        int[] offsets = new int[rows + 1];
+        for (int e = 0; e < edges; e++) offsets[forward.targets[e] + 1]++;
+        for (int t = 0; t < rows; t++) offsets[t + 1] += offsets[t];
+        int[] targets = new int[edges];
+        int[] fill = Arrays.copyOf(offsets, rows);
+        for (int r = 0; r < forward.rows; r++) {
+            for (int e = forward.offsets[r]; e < forward.offsets[r + 1]; e++) {
+                targets[fill[forward.targets[e]]++] = r;
+            }
+        }
+        return packed(rows, offsets, targets);
+    }
+
+    /**
+     * The targets of {@code row}, sorted; callers must not modify the returned array.
+     */
+    int[] row(int row) {
+        int[] changed = overlay.get(row);
+        if (changed != null) return changed;
+        if (row >= rows) return NONE;
+        return Arrays.copyOfRange(targets, offsets[row], offsets[row + 1]);
+    }
+
+    int degree(int row) {
+        int[] changed = overlay.get(row);
+        if (changed != null) return changed.length;
+        return row >= rows ? 0 : offsets[row + 1] - offsets[row];
+    }
+
+    int overlaySize() {
+        return overlay.size();
+    }
+
+    Adjacency with(Map<Integer, int[]> changes) {
+        return changes.isEmpty() ? this : new Adjacency(rows, offsets, targets, overlay.with(changes));
+    }
+
+    /**
+     * Repacks the first {@code rowCount} rows, overlay included, into a new layout without an overlay.
+     */
+    Adjacency compact(int rowCount) {
+        int[] packedOffsets = new int[rowCount + 1];
+        for (int r = 0; r < rowCount; r++) packedOffsets[r + 1] = packedOffsets[r] + degree(r);
+        int[] packedTargets = new int[packedOffsets[rowCount]];
+        for (int r = 0; r < rowCount; r++) {
+            int[] changed = overlay.get(r);
+            if (changed != null) {
+                System.arraycopy(changed, 0, packedTargets, packedOffsets[r], changed.length);
+            } else if (r < rows) {
+                System.arraycopy(targets, offsets[r], packedTargets, packedOffsets[r], offsets[r + 1] - offsets[r]);
+            }
+        }
+        return packed(rowCount, packedOffsets, packedTargets);
+    }
+
+    long edges(int rowCount) {
+        long edges = 0;
+        for (int r = 0; r < rowCount; r++) edges += degree(r);
+        return edges;
+    }
+
+    long bytes() {
+        long bytes = (offsets.length + (long) targets.length) * Integer.BYTES;
+        for (int i = 0; i < overlay.size(); i++) bytes += Integer.BYTES * (1L + overlay.valueAt(i).length);
+        return bytes;
+    }
+
+    // sorted insert and removal for building changed rows
+    static int[] plus(int[] row, int target) {
+        int i = Arrays.binarySearch(row, target);
+        if (i >= 0) return row;
+        int at = -i - 1;
+        int[] grown = new int[row.length + 1];
+        System.arraycopy(row, 0, grown, 0, at);
+        grown[at] = target;
+        System.arraycopy(row, at, grown, at + 1, row.length - at);
+        return grown;
+    }
+
+    static int[] minus(int[] row, int target) {
+        int at = Arrays.binarySearch(row, target);
+        if (at < 0) return row;
+        int[] shrunk = new int[row.length - 1];
+        System.arraycopy(row, 0, shrunk, 0, at);
+        System.arraycopy(row, at + 1, shrunk, at, row.length - at - 1);
+        return shrunk;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.personcrud.enrollment;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Configuration
+@EnableConfigurationProperties(EnrollmentProperties.class)
+public class EnrollmentConfig {
+
+    @Bean
+    public EnrollmentModel enrollmentModel(EnrollmentProperties properties, JdbcTemplate jdbcTemplate,
+                                           PlatformTransactionManager transactionManager, MeterRegistry registry) {
+        EnrollmentModel model = new EnrollmentModel(properties, jdbcTemplate, new TransactionTemplate(transactionManager));
+        Gauge.builder("enrollment.model.bytes", model, EnrollmentModel::bytes).baseUnit("bytes").register(registry);
+        return model;
+    }
+}
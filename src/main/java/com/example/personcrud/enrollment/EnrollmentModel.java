@@ -0,0 +1,718 @@
+package com.example.personcrud.enrollment;
+
+import com.example.personcrud.dto.CourseDto;
+import com.example.personcrud.dto.CourseStats;
+import com.example.personcrud.dto.StudentSet;
+import com.example.personcrud.model.Course;
+import com.example.personcrud.model.Person;
+import com.example.personcrud.model.Student;
+import com.example.personcrud.model.Teacher;
+import com.example.personcrud.repository.TableVersion;
+import org.hibernate.Hibernate;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Persons, courses and {@code course_students} held in primitive arrays for course, roster and
+ * reverse-lookup reads that never touch the database.
+ * <p>
+ * Ids are mapped to dense indexes once, by {@link LongIntMap}s; everything else is indexed by those:
+ * person kinds in a {@code byte[]}, enrollments per student and courses per teacher as {@link Adjacency}
+ * lists, and the students of each course and of each teacher as Roaring bitmaps of person indexes, which
+ * set queries combine without materializing any id. The whole model is loaded by three scans when the
+ * application is ready and kept current from the transactions that write persons and courses, applied
+ * once they commit. Writes are recorded from the start; ones committing before the scans have finished
+ * are held back and applied over them.
+ * <p>
+ * Readers take the current {@link Snapshot} and never lock. Each committed transaction publishes a new
+ * snapshot that shares the packed arrays with the previous one and carries the rows it changed in small
+ * overlays; ids and kinds of new persons and courses are appended past the end the older snapshots see.
+ * Published bitmaps are never modified: a write replaces the bitmaps it changes with new ones.
+ */
+public class EnrollmentModel {
+
+    private static final Logger log = LoggerFactory.getLogger(EnrollmentModel.class);
+
+    // person kinds; the index of a deleted person is kept, marked GONE
+    static final byte GONE = 0, PERSON = 1, STUDENT = 2, TEACHER = 3;
+
+    // a deleted course, which also makes late writes from older transactions a no-op
+    private static final CourseRow DELETED = new CourseRow(null, -1, Long.MAX_VALUE);
+
+    // shared by every empty roster, so never modified
+    private static final RoaringBitmap EMPTY = new RoaringBitmap();
+
+    private final EnrollmentProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate primaryTransaction;
+
+    // one committed transaction is applied at a time; the initial load holds it throughout
+    private final ReentrantLock writer = new ReentrantLock();
+    private volatile Snapshot snapshot;
+
+    // changes committed before the initial load has published a snapshot, in commit order; null once
+    // it has, guarded by the writer lock
+    private List<Consumer<Batch>> early = new ArrayList<>();
+
+    /**
+     * @param primaryTransaction a read-write template, so the initial load reads the primary and not a
+     *                           replica that may be behind the writes captured from then on
+     */
+    public EnrollmentModel(EnrollmentProperties properties, JdbcTemplate jdbcTemplate, TransactionTemplate primaryTransaction) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.primaryTransaction = primaryTransaction;
+    }
+
+    // false until the initial load has finished, when disabled, and after a failed update
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!properties.isEnabled()) return;
+        writer.lock();
+        try {
+            // transactions committing from here on wait for the lock; they and the ones held back so far
+            // are applied over the scan, and those it already saw again, which the version checks make harmless
+            long start = System.nanoTime();
+            Snapshot loaded = primaryTransaction.execute(status -> scan());
+            log.info("Loaded {} persons, {} courses and {} enrollments into the enrollment model ({} KB) in {} ms",
+                    loaded.persons, loaded.courses, loaded.enrollments.edges(loaded.persons), loaded.bytes() / 1024,
+                    (System.nanoTime() - start) / 1_000_000);
+            snapshot = loaded;
+            if (!early.isEmpty()) apply(early);
+        } finally {
+            early = null;
+            writer.unlock();
+        }
+    }
+
+    // size of the arrays, dictionaries and bitmaps, not counting course names
+    public long bytes() {
+        Snapshot s = snapshot;
+        return s == null ? 0 : s.bytes();
+    }
+
+    /**
+     * The current state for reads, empty until the initial load has finished, when disabled, and after a
+     * failed update; callers then read the database. A view keeps answering from the snapshot it was taken
+     * from, so one request sees one consistent state.
+     */
+    public Optional<View> view() {
+        Snapshot s = snapshot;
+        return s == null ? Optional.empty() : Optional.of(new View(s));
+    }
+
+    /**
+     * Every course with its enrollment count, and the collection version of the same state: the course
+     * count, the highest id and the sum of versions, as {@link TableVersion} reads them from the table.
+     */
+    public record CourseTable(TableVersion version, List<CourseStats> stats) {
+    }
+
+    public static final class View {
+
+        private final Snapshot s;
+
+        private View(Snapshot s) {
+            this.s = s;
+        }
+
+        public Optional<CourseDto> course(long id) {
+            int c = s.course(id);
+            CourseRow row = c < 0 ? null : s.courseRows.get(c);
+            if (row == null || row == DELETED) return Optional.empty();
+            int[] roster = s.roster(c).toArray();
+            long[] students = new long[roster.length];
+            for (int i = 0; i < roster.length; i++) students[i] = s.personIds[roster[i]];
+            Arrays.sort(students);
+            List<Long> studentIds = new ArrayList<>(students.length);
+            for (long student : students) studentIds.add(student);
+            CourseDto dto = new CourseDto(id, row.name(), s.teacherId(row), studentIds);
+            dto.setVersion(row.version());
+            return Optional.of(dto);
+        }
+
+        /**
+         * Courses a student is enrolled in or a teacher teaches with ids above {@code after}, at most
+         * {@code limit}, in id order; empty when the person does not exist.
+         */
+        public Optional<List<CourseStats>> coursesOf(long personId, long after, int limit) {
+            int p = s.person(personId);
+            if (p < 0 || s.personTypes[p] == GONE) return Optional.empty();
+            int[] courses = switch (s.personTypes[p]) {
+                case TEACHER -> s.teaching.row(p);
+                case STUDENT -> s.enrollments.row(p);
+                default -> Adjacency.NONE;
+            };
+            return Optional.of(courseStats(s, courses, after, limit));
+        }
+
+        // every course in id order
+        public CourseTable stats() {
+            int[] courses = new int[s.courses];
+            int n = 0;
+            long maxId = 0, versionSum = 0;
+            for (int c = 0; c < s.courses; c++) {
+                CourseRow row = s.courseRows.get(c);
+                if (row == DELETED) continue;
+                courses[n++] = c;
+                maxId = Math.max(maxId, s.courseIds[c]);
+                versionSum += row.version();
+            }
+            return new CourseTable(new CourseTableVersion(n, maxId, versionSum),
+                    courseStats(s, Arrays.copyOf(courses, n), 0, Integer.MAX_VALUE));
+        }
+
+        /**
+         * Students matching a {@link SetExpression}: how many, and up to {@code limit} ids after the student
+         * {@code after}. Pages follow person indexes, which is id order except for persons created
+         * concurrently since startup; the cursor stays valid across pages either way.
+         */
+        public StudentSet students(String expression, Long after, int limit) {
+            RoaringBitmap matches = SetExpression.evaluate(SetExpression.parse(expression), s::bitmap);
+            int from = 0;
+            if (after != null) {
+                int p = s.person(after);
+                if (p < 0) throw new InvalidSetQueryException("Unknown cursor " + after);
+                from = p + 1;
+            }
+            List<Long> items = new ArrayList<>(Math.min(limit, matches.getCardinality()));
+            PeekableIntIterator it = matches.getIntIterator();
+            it.advanceIfNeeded(from);
+            while (items.size() < limit && it.hasNext()) items.add(s.personIds[it.next()]);
+            Long next = it.hasNext() && !items.isEmpty() ? items.get(items.size() - 1) : null;
+            return new StudentSet(matches.getLongCardinality(), items, next);
+        }
+    }
+
+    private static List<CourseStats> courseStats(Snapshot s, int[] courses, long after, int limit) {
+        int[] sorted = sortById(courses, s.courseIds);
+        List<CourseStats> stats = new ArrayList<>(Math.min(sorted.length, limit));
+        for (int c : sorted) {
+            if (s.courseIds[c] <= after) continue;
+            if (stats.size() == limit) break;
+            CourseRow row = s.courseRows.get(c);
+            stats.add(new CourseStats(s.courseIds[c], row.name(), s.teacherId(row), s.roster(c).getCardinality()));
+        }
+        return stats;
+    }
+
+    // indexes follow id order except for courses created concurrently, so an insertion sort is near linear
+    private static int[] sortById(int[] indexes, long[] ids) {
+        int[] sorted = indexes.clone();
+        for (int i = 1; i < sorted.length; i++) {
+            int index = sorted[i];
+            int j = i - 1;
+            while (j >= 0 && ids[sorted[j]] > ids[index]) {
+                sorted[j + 1] = sorted[j];
+                j--;
+            }
+            sorted[j + 1] = index;
+        }
+        return sorted;
+    }
+
+    public void personSaved(SessionImplementor session, Person person) {
+        long id = person.getId();
+        byte kind = person instanceof Student ? STUDENT : person instanceof Teacher ? TEACHER : PERSON;
+        record(session, batch -> batch.person(id, kind));
+    }
+
+    public void personDeleted(SessionImplementor session, Long id) {
+        record(session, batch -> batch.removePerson(id));
+    }
+
+    // students are left as they are when the collection was not loaded, i.e. not changed
+    public void courseSaved(SessionImplementor session, Course course) {
+        long[] studentIds = Hibernate.isInitialized(course.getStudents())
+                ? course.getStudents().stream().mapToLong(Student::getId).toArray()
+                : null;
+        long teacherId = course.getTeacher() == null ? 0 : course.getTeacher().getId();
+        long version = course.getVersion() == null ? 0 : course.getVersion();
+        String name = course.getName();
+        long id = course.getId();
+        record(session, batch -> batch.putCourse(id, version, name, teacherId, studentIds));
+    }
+
+    // for set-based statements, which bypass entity events
+    public void courseSaved(SessionImplementor session, CourseDto course) {
+        long[] studentIds = course.getStudentIds().stream().mapToLong(Long::longValue).toArray();
+        long teacherId = course.getTeacherId() == null ? 0 : course.getTeacherId();
+        long version = course.getVersion() == null ? 0 : course.getVersion();
+        record(session, batch -> batch.putCourse(course.getId(), version, course.getName(), teacherId, studentIds));
+    }
+
+    public void courseDeleted(SessionImplementor session, Long id) {
+        record(session, batch -> batch.removeCourse(id));
+    }
+
+    private void record(SessionImplementor session, Consumer<Batch> change) {
+        if (!properties.isEnabled()) return;
+        Pending pending = TransactionSynchronizationManager.isSynchronizationActive()
+                ? (Pending) TransactionSynchronizationManager.getResource(this) : null;
+        if (pending == null) {
+            pending = new Pending();
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.bindResource(this, pending);
+            }
+            session.getActionQueue().registerProcess(pending);
+        }
+        pending.changes.add(change);
+    }
+
+    private void apply(List<Consumer<Batch>> changes) {
+        writer.lock();
+        try {
+            Snapshot current = snapshot;
+            if (current == null) {
+                if (early != null) early.addAll(changes);
+                return;
+            }
+            Batch batch = new Batch(current);
+            changes.forEach(change -> change.accept(batch));
+            snapshot = batch.publish(properties.getMaxOverlayRows());
+        } catch (RuntimeException e) {
+            // a change that could not be applied leaves the model behind; reads go back to the database
+            snapshot = null;
+            log.error("Enrollment model disabled after a failed update, it is reloaded on restart", e);
+        } finally {
+            writer.unlock();
+        }
+    }
+
+    private Snapshot scan() {
+        Scan scan = new Scan(count("person"), count("course"), count("course_students"));
+        jdbcTemplate.query("select id, person_type from person order by id", scan::person);
+        jdbcTemplate.query("select id, name, version, teacher_id from course order by id", scan::course);
+        jdbcTemplate.query("select course_id, student_id from course_students order by course_id, student_id", scan::enrollment);
+        return scan.snapshot();
+    }
+
+    private int count(String table) {
+        Integer count = jdbcTemplate.queryForObject("select count(*) from " + table, Integer.class);
+        return count == null ? 0 : count;
+    }
+
+    private static int grow(int length) {
+        return Math.max(16, length + (length >> 1));
+    }
+
+    private record CourseTableVersion(long count, long maxId, long versionSum) implements TableVersion {
+
+        @Override
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public long getMaxId() {
+            return maxId;
+        }
+
+        @Override
+        public long getVersionSum() {
+            return versionSum;
+        }
+    }
+
+    // teacher is a person index, -1 without one
+    private record CourseRow(String name, int teacher, long version) {
+    }
+
+    /**
+     * One published state. The arrays of ids and kinds may be longer than {@code persons} and
+     * {@code courses} and are appended to by later writes; only the entries below the counts belong here.
+     */
+    private record Snapshot(LongIntMap personIndex, long[] personIds, byte[] personTypes, int persons,
+                            LongIntMap courseIndex, long[] courseIds, Rows<CourseRow> courseRows, int courses,
+                            Rows<RoaringBitmap> rosters, Adjacency enrollments, Adjacency teaching,
+                            IntOverlay<RoaringBitmap> teacherStudents, RoaringBitmap students, RoaringBitmap enrolled) {
+
+        int person(long id) {
+            int p = personIndex.get(id);
+            return p < persons ? p : -1;
+        }
+
+        int course(long id) {
+            int c = courseIndex.get(id);
+            return c < courses ? c : -1;
+        }
+
+        RoaringBitmap roster(int c) {
+            RoaringBitmap roster = rosters.get(c);
+            return roster == null ? EMPTY : roster;
+        }
+
+        Long teacherId(CourseRow row) {
+            return row.teacher() < 0 ? null : personIds[row.teacher()];
+        }
+
+        RoaringBitmap bitmap(SetExpression.Operand operand) {
+            switch (operand.kind()) {
+                case STUDENTS:
+                    return students;
+                case ENROLLED:
+                    return enrolled;
+                case COURSE: {
+                    int c = course(operand.id());
+                    CourseRow row = c < 0 ? null : courseRows.get(c);
+                    if (row == null || row == DELETED) throw new InvalidSetQueryException("Unknown course " + operand.id());
+                    return roster(c);
+                }
+                default: {
+                    int p = person(operand.id());
+                    if (p < 0 || personTypes[p] != TEACHER) throw new InvalidSetQueryException("Unknown teacher " + operand.id());
+                    RoaringBitmap taught = teacherStudents.get(p);
+                    return taught == null ? EMPTY : taught;
+                }
+            }
+        }
+
+        long bytes() {
+            long bytes = personIndex.bytes() + personIds.length * (long) Long.BYTES + personTypes.length
+                    + courseIndex.bytes() + courseIds.length * (long) Long.BYTES
+                    + enrollments.bytes() + teaching.bytes() + students.getSizeInBytes() + enrolled.getSizeInBytes();
+            for (int c = 0; c < courses; c++) bytes += roster(c).getSizeInBytes();
+            for (int i = 0; i < teacherStudents.size(); i++) bytes += teacherStudents.valueAt(i).getSizeInBytes();
+            return bytes;
+        }
+    }
+
+    /**
+     * The initial load. Persons and courses are read in id order, so their indexes follow id order and
+     * the enrollments, read by course and student, arrive already packed.
+     */
+    private static final class Scan {
+
+        private final LongIntMap personIndex;
+        private long[] personIds;
+        private byte[] personTypes;
+        private int persons;
+
+        private final LongIntMap courseIndex;
+        private long[] courseIds;
+        private CourseRow[] courseRows;
+        private int courses;
+
+        private int[] rosterOffsets;
+        private int[] rosterTargets;
+        private int enrollments;
+
+        Scan(int persons, int courses, int enrollments) {
+            personIndex = new LongIntMap(persons);
+            personIds = new long[persons];
+            personTypes = new byte[persons];
+            courseIndex = new LongIntMap(courses);
+            courseIds = new long[courses];
+            courseRows = new CourseRow[courses];
+            rosterTargets = new int[enrollments];
+        }
+
+        void person(ResultSet rs) throws SQLException {
+            if (persons == personIds.length) {
+                personIds = Arrays.copyOf(personIds, grow(persons));
+                personTypes = Arrays.copyOf(personTypes, personIds.length);
+            }
+            personIds[persons] = rs.getLong(1);
+            personTypes[persons] = switch (rs.getString(2)) {
+                case "STUDENT" -> STUDENT;
+                case "TEACHER" -> TEACHER;
+                default -> PERSON;
+            };
+            personIndex.put(personIds[persons], persons++);
+        }
+
+        void course(ResultSet rs) throws SQLException {
+            if (courses == courseIds.length) {
+                courseIds = Arrays.copyOf(courseIds, grow(courses));
+                courseRows = Arrays.copyOf(courseRows, courseIds.length);
+            }
+            long teacherId = rs.getLong(4);
+            int teacher = rs.wasNull() ? -1 : personIndex.get(teacherId);
+            courseIds[courses] = rs.getLong(1);
+            courseRows[courses] = new CourseRow(rs.getString(2), teacher, rs.getLong(3));
+            courseIndex.put(courseIds[courses], courses++);
+        }
+
+        // rows of courses or students written after their scan are skipped; those writes are applied later
+        void enrollment(ResultSet rs) throws SQLException {
+            if (rosterOffsets == null) rosterOffsets = new int[courses + 1];
+            int c = courseIndex.get(rs.getLong(1));
+            int p = personIndex.get(rs.getLong(2));
+            if (c < 0 || p < 0) return;
+            if (enrollments == rosterTargets.length) rosterTargets = Arrays.copyOf(rosterTargets, grow(enrollments));
+            rosterOffsets[c + 1]++;
+            rosterTargets[enrollments++] = p;
+        }
+
+        Snapshot snapshot() {
+            if (rosterOffsets == null) rosterOffsets = new int[courses + 1];
+            for (int c = 0; c < courses; c++) rosterOffsets[c + 1] += rosterOffsets[c];
+            Object[] rosters = new Object[courses];
+            for (int c = 0; c < courses; c++) {
+                RoaringBitmap roster = new RoaringBitmap();
+                roster.addN(rosterTargets, rosterOffsets[c], rosterOffsets[c + 1] - rosterOffsets[c]);
+                rosters[c] = roster;
+            }
+            // the packed rosters only live long enough to be turned around into courses per student
+            Adjacency enrollmentLists = Adjacency.transpose(Adjacency.packed(courses, rosterOffsets, rosterTargets), persons);
+
+            // course -> teacher as a list of at most one entry, turned around into courses per teacher
+            int[] teacherOffsets = new int[courses + 1];
+            int[] teachers = new int[courses];
+            int taught = 0;
+            for (int c = 0; c < courses; c++) {
+                if (courseRows[c].teacher() >= 0) teachers[taught++] = courseRows[c].teacher();
+                teacherOffsets[c + 1] = taught;
+            }
+            Adjacency teaching = Adjacency.transpose(Adjacency.packed(courses, teacherOffsets, teachers), persons);
+
+            Map<Integer, RoaringBitmap> teacherStudents = new HashMap<>();
+            RoaringBitmap students = new RoaringBitmap();
+            RoaringBitmap enrolled = new RoaringBitmap();
+            for (int p = 0; p < persons; p++) {
+                if (personTypes[p] == TEACHER && teaching.degree(p) > 0) {
+                    teacherStudents.put(p, FastAggregation.or(IntStream.of(teaching.row(p))
+                            .mapToObj(c -> (RoaringBitmap) rosters[c]).iterator()));
+                } else if (personTypes[p] == STUDENT) {
+                    students.add(p);
+                    if (enrollmentLists.degree(p) > 0) enrolled.add(p);
+                }
+            }
+            // persons are mostly students, so these are long runs
+            students.runOptimize();
+            enrolled.runOptimize();
+
+            return new Snapshot(personIndex, personIds, personTypes, persons,
+                    courseIndex, courseIds, Rows.packed(Arrays.copyOf(courseRows, courses, Object[].class)), courses,
+                    Rows.packed(rosters), enrollmentLists, teaching,
+                    IntOverlay.<RoaringBitmap>empty().with(teacherStudents), students, enrolled);
+        }
+    }
+
+    /**
+     * The changes of one or more committed transactions on top of a snapshot. New persons and courses are
+     * appended to the shared id arrays in place, past the counts readers of the snapshot look at; changed
+     * rows are collected and merged into copies of the overlays by {@link #publish}. Bitmaps are copied
+     * the first time a batch changes them and only modified in that copy.
+     */
+    private static final class Batch {
+
+        private final Snapshot base;
+        private long[] personIds;
+        private byte[] personTypes;
+        private int persons;
+        private long[] courseIds;
+        private int courses;
+
+        private final Map<Integer, CourseRow> courseChanges = new HashMap<>();
+        private final Map<Integer, RoaringBitmap> rosterChanges = new HashMap<>();
+        private final Map<Integer, int[]> enrollmentChanges = new HashMap<>();
+        private final Map<Integer, int[]> teachingChanges = new HashMap<>();
+        private final Map<Integer, RoaringBitmap> teacherChanges = new HashMap<>();
+        private RoaringBitmap students;
+        private RoaringBitmap enrolled;
+
+        Batch(Snapshot base) {
+            this.base = base;
+            personIds = base.personIds;
+            personTypes = base.personTypes;
+            persons = base.persons;
+            courseIds = base.courseIds;
+            courses = base.courses;
+        }
+
+        // the index of a person, added with the given kind when new
+        int person(long id, byte kind) {
+            int p = base.personIndex.get(id);
+            if (p >= 0) return p;
+            if (persons == personIds.length) {
+                personIds = Arrays.copyOf(personIds, grow(persons));
+                personTypes = Arrays.copyOf(personTypes, personIds.length);
+            }
+            personIds[persons] = id;
+            personTypes[persons] = kind;
+            base.personIndex.put(id, persons);
+            if (kind == STUDENT) students().add(persons);
+            return persons++;
+        }
+
+        // a single byte store into the shared array; the database only lets persons without courses go,
+        // so readers that see it before the snapshot is published lose nothing else
+        void removePerson(long id) {
+            int p = person(id, GONE);
+            if (personTypes[p] == STUDENT) students().remove(p);
+            personTypes[p] = GONE;
+        }
+
+        void putCourse(long id, long version, String name, long teacherId, long[] studentIds) {
+            int c = course(id);
+            CourseRow old = courseRow(c);
+            if (old == DELETED || (old != null && old.version() > version)) return;
+            int teacher = teacherId > 0 ? person(teacherId, TEACHER) : -1;
+            RoaringBitmap roster = null;
+            if (studentIds != null) {
+                roster = new RoaringBitmap();
+                for (long studentId : studentIds) roster.add(person(studentId, STUDENT));
+            }
+            change(c, old, new CourseRow(name, teacher, version), roster);
+        }
+
+        void removeCourse(long id) {
+            int c = course(id);
+            CourseRow old = courseRow(c);
+            if (old != DELETED) change(c, old, DELETED, EMPTY);
+        }
+
+        private int course(long id) {
+            int c = base.courseIndex.get(id);
+            if (c >= 0) return c;
+            if (courses == courseIds.length) courseIds = Arrays.copyOf(courseIds, grow(courses));
+            courseIds[courses] = id;
+            base.courseIndex.put(id, courses);
+            return courses++;
+        }
+
+        private CourseRow courseRow(int c) {
+            CourseRow changed = courseChanges.get(c);
+            return changed != null || c >= base.courses ? changed : base.courseRows.get(c);
+        }
+
+        /**
+         * Replaces course {@code c}, and its roster unless {@code roster} is null. Students only in the old
+         * roster lose the course, students only in the new one gain it, and the teachers' bitmaps follow.
+         */
+        private void change(int c, CourseRow old, CourseRow updated, RoaringBitmap roster) {
+            courseChanges.put(c, updated);
+            RoaringBitmap previous = rosterChanges.getOrDefault(c, base.roster(c));
+            RoaringBitmap current = roster == null ? previous : roster;
+            RoaringBitmap added = RoaringBitmap.andNot(current, previous);
+            RoaringBitmap removed = RoaringBitmap.andNot(previous, current);
+            added.forEach((int p) -> enroll(p, c));
+            removed.forEach((int p) -> unenroll(p, c));
+            if (!added.isEmpty() || !removed.isEmpty()) rosterChanges.put(c, current);
+
+            int oldTeacher = old == null ? -1 : old.teacher();
+            int teacher = updated.teacher();
+            if (oldTeacher == teacher) {
+                if (teacher >= 0) {
+                    if (!added.isEmpty()) teacherStudents(teacher).or(added);
+                    dropUnless(teacher, removed);
+                }
+                return;
+            }
+            if (oldTeacher >= 0) {
+                teachingChanges.put(oldTeacher, Adjacency.minus(row(teachingChanges, base.teaching, oldTeacher), c));
+                dropUnless(oldTeacher, previous);
+            }
+            if (teacher >= 0) {
+                teachingChanges.put(teacher, Adjacency.plus(row(teachingChanges, base.teaching, teacher), c));
+                teacherStudents(teacher).or(current);
+            }
+        }
+
+        private void enroll(int p, int c) {
+            int[] courses = row(enrollmentChanges, base.enrollments, p);
+            if (courses.length == 0) enrolled().add(p);
+            enrollmentChanges.put(p, Adjacency.plus(courses, c));
+        }
+
+        private void unenroll(int p, int c) {
+            int[] courses = Adjacency.minus(row(enrollmentChanges, base.enrollments, p), c);
+            if (courses.length == 0) enrolled().remove(p);
+            enrollmentChanges.put(p, courses);
+        }
+
+        // candidates leave the teacher's bitmap unless another of the teacher's courses still has them
+        private void dropUnless(int teacher, RoaringBitmap candidates) {
+            candidates.forEach((int p) -> {
+                for (int c : row(enrollmentChanges, base.enrollments, p)) {
+                    if (courseRow(c).teacher() == teacher) return;
+                }
+                teacherStudents(teacher).remove(p);
+            });
+        }
+
+        private RoaringBitmap teacherStudents(int teacher) {
+            return teacherChanges.computeIfAbsent(teacher, t -> {
+                RoaringBitmap published = base.teacherStudents.get(t);
+                return published == null ? new RoaringBitmap() : published.clone();
+            });
+        }
+
+        private RoaringBitmap students() {
+            if (students == null) students = base.students.clone();
+            return students;
+        }
+
+        private RoaringBitmap enrolled() {
+            if (enrolled == null) enrolled = base.enrolled.clone();
+            return enrolled;
+        }
+
+        private static int[] row(Map<Integer, int[]> changes, Adjacency adjacency, int row) {
+            int[] changed = changes.get(row);
+            return changed != null ? changed : adjacency.row(row);
+        }
+
+        /**
+         * The next snapshot; once an overlay holds more than {@code maxOverlayRows} rows, everything is
+         * repacked so lookups stay a binary search over few changed rows.
+         */
+        Snapshot publish(int maxOverlayRows) {
+            Rows<CourseRow> courseRows = base.courseRows.with(courseChanges);
+            Rows<RoaringBitmap> rosters = base.rosters.with(rosterChanges);
+            Adjacency enrollments = base.enrollments.with(enrollmentChanges);
+            Adjacency teaching = base.teaching.with(teachingChanges);
+            int overlay = Math.max(Math.max(rosters.overlaySize(), enrollments.overlaySize()),
+                    Math.max(teaching.overlaySize(), courseRows.overlaySize()));
+            if (overlay > maxOverlayRows) {
+                courseRows = courseRows.compact(courses);
+                rosters = rosters.compact(courses);
+                enrollments = enrollments.compact(persons);
+                teaching = teaching.compact(persons);
+            }
+            return new Snapshot(base.personIndex, personIds, personTypes, persons,
+                    base.courseIndex, courseIds, courseRows, courses, rosters, enrollments, teaching,
+                    base.teacherStudents.with(teacherChanges),
+                    students != null ? students : base.students, enrolled != null ? enrolled : base.enrolled);
+        }
+    }
+
+    private final class Pending implements AfterTransactionCompletionProcess {
+
+        private final List<Consumer<Batch>> changes = new ArrayList<>();
+
+        @Override
+        public void doAfterTransactionCompletion(boolean success, SharedSessionContractImplementor session) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(EnrollmentModel.this);
+            if (success) apply(changes);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.personcrud.enrollment;
+
+/**
+ * A query that only the enrollment model can answer arrived while it is loading or disabled.
+ */
+public class EnrollmentModelUnavailableException extends RuntimeException {
+
+    public EnrollmentModelUnavailableException() {
+        super("Enrollment queries are not available yet, retry shortly");
+    }
+}
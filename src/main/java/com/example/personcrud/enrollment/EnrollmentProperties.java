@@ -0,0 +1,32 @@
+package com.example.personcrud.enrollment;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * In-memory enrollment read model ({@code app.enrollment.*}).
+ */
+@ConfigurationProperties(prefix = "app.enrollment")
+public class EnrollmentProperties {
+
+    // when off, course, roster and stats reads go to the database as before
+    private boolean enabled = true;
+
+    // rows changed since the last repack; past this the packed arrays are rebuilt on the next write
+    private int maxOverlayRows = 4096;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxOverlayRows() {
+        return maxOverlayRows;
+    }
+
+    public void setMaxOverlayRows(int maxOverlayRows) {
+        this.maxOverlayRows = maxOverlayRows;
+    }
+}
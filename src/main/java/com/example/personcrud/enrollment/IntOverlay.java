@@ -0,0 +1,69 @@
+package com.example.personcrud.enrollment;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable sorted map from {@code int} keys to values, used for the rows changed since the last
+ * compaction. Updates return a new overlay and leave this one untouched, so a published snapshot never
+ * changes under its readers.
+ */
+final class IntOverlay<T> {
+
+    private static final IntOverlay<?> EMPTY = new IntOverlay<>(new int[0], new Object[0]);
+
+    private final int[] keys;
+    private final Object[] values;
+
+    private IntOverlay(int[] keys, Object[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> IntOverlay<T> empty() {
+        return (IntOverlay<T>) EMPTY;
+    }
+
+    int size() {
+        return keys.length;
+    }
+
+    // null when the key has not changed
+    @SuppressWarnings("unchecked")
+    T get(int key) {
+        int i = Arrays.binarySearch(keys, key);
+        return i < 0 ? null : (T) values[i];
+    }
+
+    int keyAt(int i) {
+        return keys[i];
+    }
+
+    @SuppressWarnings("unchecked")
+    T valueAt(int i) {
+        return (T) values[i];
+    }
+
+    /**
+     * Returns an overlay with {@code changes} merged in, replacing the values of keys already present.
+     */
+    IntOverlay<T> with(Map<Integer, T> changes) {
+        if (changes.isEmpty()) return this;
+        int[] changed = changes.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        int[] mergedKeys = new int[keys.length + changed.length];
+        Object[] mergedValues = new Object[mergedKeys.length];
+        int i = 0, j = 0, n = 0;
+        while (i < keys.length || j < changed.length) {
+            if (j == changed.length || (i < keys.length && keys[i] < changed[j])) {
+                mergedKeys[n] = keys[i];
+                mergedValues[n++] = values[i++];
+            } else {
+                if (i < keys.length && keys[i] == changed[j]) i++;
+                mergedKeys[n] = changed[j];
+                mergedValues[n++] = changes.get(changed[j++]);
+            }
+        }
+        return new IntOverlay<>(Arrays.copyOf(mergedKeys, n), Arrays.copyOf(mergedValues, n));
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.personcrud.enrollment;
+
+/**
+ * A set query that does not parse or names a course or teacher that does not exist.
+ */
+public class InvalidSetQueryException extends RuntimeException {
+
+    public InvalidSetQueryException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.personcrud.enrollment;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Open-addressing map from positive {@code long} ids to dense {@code int} indexes, without boxing.
+ * One thread writes while any number read: a value is stored before its key is released, so a reader
+ * that finds the key also sees the value, and a resize publishes a complete new table.
+ */
+final class LongIntMap {
+
+    private static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    // 0 marks a free slot, which is why keys must be positive
+    private static final long FREE = 0;
+
+    private volatile Table table;
+    // only touched by the writer
+    private int size;
+
+    LongIntMap(int expected) {
+        table = new Table(capacityFor(expected));
+    }
+
+    /**
+     * Returns the index stored for {@code key}, or -1.
+     */
+    int get(long key) {
+        Table t = table;
+        for (int slot = t.slot(key); ; slot = (slot + 1) & t.mask) {
+            long k = (long) KEYS.getAcquire(t.keys, slot);
+            if (k == key) return t.values[slot];
+            if (k == FREE) return -1;
+        }
+    }
+
+    // single writer only
+    void put(long key, int value) {
+        if (key <= 0) throw new IllegalArgumentException("Keys must be positive: " + key);
+        Table t = table;
+        if ((size + 1) * 4L > t.keys.length * 3L) {
+            t = resize(t);
+        }
+        if (insert(t, key, value)) size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long bytes() {
+        return table.keys.length * (long) (Long.BYTES + Integer.BYTES);
+    }
+
+    private Table resize(Table old) {
+        Table grown = new Table(old.keys.length * 2);
+        for (int i = 0; i < old.keys.length; i++) {
+            if (old.keys[i] != FREE) insert(grown, old.keys[i], old.values[i]);
+        }
+        table = grown;
+        return grown;
+    }
+
+    private static boolean insert(Table t, long key, int value) {
+        for (int slot = t.slot(key); ; slot = (slot + 1) & t.mask) {
+            long k = t.keys[slot];
+            if (k == key) {
+                t.values[slot] = value;
+                return false;
+            }
+            if (k == FREE) {
+                t.values[slot] = value;
+                KEYS.setRelease(t.keys, slot, key);
+                return true;
+            }
+        }
+    }
+
+    private static int capacityFor(int expected) {
+        int capacity = 16;
+        while (capacity * 3L < Math.max(expected, 1) * 4L) capacity <<= 1;
+        return capacity;
+    }
+
+    private static final class Table {
+
+        final long[] keys;
+        final int[] values;
+        final int mask;
+        final int shift;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+            shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        }
+
+        // Fibonacci hashing: sequence ids arrive in runs and would otherwise cluster
+        int slot(long key) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+        }
+    }
+}
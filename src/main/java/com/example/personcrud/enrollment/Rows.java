@@ -0,0 +1,45 @@
+package com.example.personcrud.enrollment;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable values by dense index: a packed array with the rows changed since it was packed in an
+ * {@link IntOverlay}, the object counterpart of {@link Adjacency}.
+ */
+final class Rows<T> {
+
+    private final Object[] base;
+    private final IntOverlay<T> overlay;
+
+    private Rows(Object[] base, IntOverlay<T> overlay) {
+        this.base = base;
+        this.overlay = overlay;
+    }
+
+    static <T> Rows<T> packed(Object[] base) {
+        return new Rows<>(base, IntOverlay.empty());
+    }
+
+    // null for rows never set
+    @SuppressWarnings("unchecked")
+    T get(int row) {
+        T changed = overlay.get(row);
+        return changed != null || row >= base.length ? changed : (T) base[row];
+    }
+
+    int overlaySize() {
+        return overlay.size();
+    }
+
+    Rows<T> with(Map<Integer, T> changes) {
+        return changes.isEmpty() ? this : new Rows<>(base, overlay.with(changes));
+    }
+
+    // repacks the first rowCount rows, overlay included
+    Rows<T> compact(int rowCount) {
+        Object[] packed = Arrays.copyOf(base, rowCount);
+        for (int i = 0; i < overlay.size(); i++) packed[overlay.keyAt(i)] = overlay.valueAt(i);
+        return packed(packed);
+    }
+}
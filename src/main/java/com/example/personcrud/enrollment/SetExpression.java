@@ -0,0 +1,144 @@
+package com.example.personcrud.enrollment;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * A set expression over students, e.g. {@code course:1 AND course:2 ANDNOT course:3} or
+ * {@code students ANDNOT enrolled}. Operands are {@code course:<id>} (its roster), {@code teacher:<id>}
+ * (everyone in that teacher's courses), {@code students} (all students) and {@code enrolled} (students in
+ * at least one course). {@code AND} and {@code ANDNOT} (also written {@code AND NOT}) bind tighter than
+ * {@code OR}; parentheses group. Keywords are case-insensitive.
+ */
+final class SetExpression {
+
+    // bound the work and the parser's recursion a single request can ask for
+    static final int MAX_OPERANDS = 64;
+    static final int MAX_DEPTH = 16;
+
+    enum Kind {
+        COURSE, TEACHER, STUDENTS, ENROLLED
+    }
+
+    interface Node {
+    }
+
+    record Operand(Kind kind, long id) implements Node {
+    }
+
+    record And(Node left, Node right) implements Node {
+    }
+
+    record Or(Node left, Node right) implements Node {
+    }
+
+    record AndNot(Node left, Node right) implements Node {
+    }
+
+    private final List<String> tokens;
+    private int position;
+    private int operands;
+    private int depth;
+
+    private SetExpression(List<String> tokens) {
+        this.tokens = tokens;
+    }
+
+    static Node parse(String text) {
+        SetExpression parser = new SetExpression(tokenize(text == null ? "" : text));
+        if (parser.tokens.isEmpty()) throw new InvalidSetQueryException("The query is empty");
+        Node node = parser.expression();
+        if (parser.position < parser.tokens.size()) {
+            throw new InvalidSetQueryException("Unexpected '" + parser.tokens.get(parser.position) + "'");
+        }
+        return node;
+    }
+
+    /**
+     * Evaluates {@code node} with the static Roaring operations, which always return a new bitmap and
+     * leave the operands, shared with other readers, untouched.
+     */
+    static RoaringBitmap evaluate(Node node, Function<Operand, RoaringBitmap> operands) {
+        if (node instanceof Operand operand) return operands.apply(operand);
+        if (node instanceof And and) return RoaringBitmap.and(evaluate(and.left(), operands), evaluate(and.right(), operands));
+        if (node instanceof Or or) return RoaringBitmap.or(evaluate(or.left(), operands), evaluate(or.right(), operands));
+        AndNot andNot = (AndNot) node;
+        return RoaringBitmap.andNot(evaluate(andNot.left(), operands), evaluate(andNot.right(), operands));
+    }
+
+    private Node expression() {
+        Node node = term();
+        while (accept("OR")) node = new Or(node, term());
+        return node;
+    }
+
+    private Node term() {
+        Node node = factor();
+        while (true) {
+            if (accept("ANDNOT")) {
+                node = new AndNot(node, factor());
+            } else if (accept("AND")) {
+                node = accept("NOT") ? new AndNot(node, factor()) : new And(node, factor());
+            } else {
+                return node;
+            }
+        }
+    }
+
+    private Node factor() {
+        if (position == tokens.size()) throw new InvalidSetQueryException("The query ends where an operand was expected");
+        String token = tokens.get(position++);
+        if (token.equals("(")) {
+            if (++depth > MAX_DEPTH) throw new InvalidSetQueryException("Parentheses nest deeper than " + MAX_DEPTH);
+            Node node = expression();
+            if (!accept(")")) throw new InvalidSetQueryException("Missing ')'");
+            depth--;
+            return node;
+        }
+        if (++operands > MAX_OPERANDS) throw new InvalidSetQueryException("At most " + MAX_OPERANDS + " operands are allowed");
+        String lower = token.toLowerCase(Locale.ROOT);
+        if (lower.equals("students")) return new Operand(Kind.STUDENTS, 0);
+        if (lower.equals("enrolled")) return new Operand(Kind.ENROLLED, 0);
+        int colon = lower.indexOf(':');
+        String prefix = colon < 0 ? lower : lower.substring(0, colon);
+        Kind kind = switch (prefix) {
+            case "course" -> Kind.COURSE;
+            case "teacher" -> Kind.TEACHER;
+            default -> throw new InvalidSetQueryException("Unknown operand '" + token + "'");
+        };
+        try {
+            return new Operand(kind, Long.parseLong(colon < 0 ? "" : lower.substring(colon + 1)));
+        } catch (NumberFormatException e) {
+            throw new InvalidSetQueryException("Expected " + prefix + ":<id> but got '" + token + "'");
+        }
+    }
+
+    private boolean accept(String keyword) {
+        if (position < tokens.size() && tokens.get(position).equalsIgnoreCase(keyword)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (Character.isWhitespace(ch) || ch == '(' || ch == ')') {
+                if (!word.isEmpty()) tokens.add(word.toString());
+                word.setLength(0);
+                if (ch == '(' || ch == ')') tokens.add(String.valueOf(ch));
+            } else {
+                word.append(ch);
+            }
+        }
+        if (!word.isEmpty()) tokens.add(word.toString());
+        return tokens;
+    }
+}
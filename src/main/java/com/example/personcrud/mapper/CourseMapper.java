@@ -0,0 +1,48 @@
+package com.example.personcrud.mapper;
+
+import com.example.personcrud.dto.CourseDto;
+import com.example.personcrud.model.Course;
+import com.example.personcrud.model.Student;
+import com.example.personcrud.model.Teacher;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public final class CourseMapper {
+
+    private CourseMapper() {
+    }
+
+    public static CourseDto toDto(Course c) {
+        List<Long> studentIds = c.getStudents().stream().map(Student::getId).collect(Collectors.toList());
+        Long teacherId = c.getTeacher() != null ? c.getTeacher().getId() : null;
+        CourseDto dto = new CourseDto(c.getId(), c.getName(), teacherId, studentIds);
+        dto.setVersion(c.getVersion());
+        return dto;
+    }
+
+    // references only carry ids; CourseService resolves them in bulk and validates their types
+    public static Course toEntity(CourseDto d) {
+        Course c = new Course();
+        c.setId(d.getId());
+        c.setName(d.getName());
+        if (d.getTeacherId() != null) {
+            Teacher t = new Teacher();
+            t.setId(d.getTeacherId());
+            c.setTeacher(t);
+        }
+        if (d.getStudentIds() != null) {
+            Set<Student> students = d.getStudentIds().stream()
+                    .map(id -> {
+                        Student s = new Student();
+                        s.setId(id);
+                        return s;
+                    })
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+            c.setStudents(students);
+        }
+        return c;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.personcrud.mapper;
+
+import com.example.personcrud.dto.PersonDto;
+import com.example.personcrud.model.Person;
+import com.example.personcrud.model.Student;
+import com.example.personcrud.model.Teacher;
+
+public final class PersonMapper {
+
+    private PersonMapper() {
+    }
+
+    public static PersonDto toDto(Person p) {
+        PersonDto dto = new PersonDto(p.getId(), p.getFirstName(), p.getLastName(), p.getEmail());
+        dto.setPersonType(personType(p.getClass()));
+        dto.setVersion(p.getVersion());
+        return dto;
+    }
+
+    // also used for projections, which only have the entity class from type(p)
+    public static String personType(Class<?> type) {
+        if (Teacher.class.isAssignableFrom(type)) return "TEACHER";
+        if (Student.class.isAssignableFrom(type)) return "STUDENT";
+        return "PERSON";
+    }
+
+    public static Person toEntity(PersonDto d) {
+        Person p;
+        if ("TEACHER".equals(d.getPersonType())) {
+            p = new Teacher(d.getFirstName(), d.getLastName(), d.getEmail());
+        } else if ("STUDENT".equals(d.getPersonType())) {
+            p = new Student(d.getFirstName(), d.getLastName(), d.getEmail());
+        } else {
+            p = new Person(d.getFirstName(), d.getLastName(), d.getEmail());
+        }
+        p.setId(d.getId());
+        return p;
+    }
+}
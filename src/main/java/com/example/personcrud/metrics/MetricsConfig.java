@@ -0,0 +1,53 @@
+package com.example.personcrud.metrics;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.cache.CacheManager;
+import java.time.Duration;
+
+/**
+ * Metrics the actuator doesn't bind on its own. HTTP timers, Hikari pool gauges and Hibernate
+ * statistics come from Spring Boot's auto-configuration.
+ */
+@Configuration
+public class MetricsConfig {
+
+    // static: post-processors are created before the rest of the configuration
+    @Bean
+    public static SqlTracingDataSourcePostProcessor sqlTracingDataSourcePostProcessor(Environment environment) {
+        return new SqlTracingDataSourcePostProcessor(
+                environment.getProperty("app.sql.slow-query-threshold", Duration.class, Duration.ofMillis(200)));
+    }
+
+    @Bean
+    public FilterRegistrationBean<SqlRequestFilter> sqlRequestFilter(
+            MeterRegistry registry,
+            @Value("${app.sql.budget.max-statements:50}") long maxStatements,
+            @Value("${app.sql.budget.max-time:500ms}") Duration maxTime,
+            @Value("${app.sql.budget.fail-on-breach:false}") boolean failOnBreach) {
+        FilterRegistrationBean<SqlRequestFilter> registration = new FilterRegistrationBean<>(
+                new SqlRequestFilter(registry, maxStatements, maxTime, failOnBreach));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    // the second-level cache regions only exist once Hibernate has started, hence the factory parameter
+    @Bean
+    public MeterBinder secondLevelCacheMetrics(CacheManager jcacheManager, EntityManagerFactory entityManagerFactory) {
+        return registry -> {
+            for (String name : jcacheManager.getCacheNames()) {
+                javax.cache.Cache<Object, Object> cache = jcacheManager.getCache(name);
+                if (cache != null) CaffeineCacheMetrics.monitor(registry, cache.unwrap(Cache.class), name);
+            }
+        };
+    }
+}
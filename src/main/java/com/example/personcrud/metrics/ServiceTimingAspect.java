@@ -0,0 +1,73 @@
+package com.example.personcrud.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every public service method as {@code service.method} (tags: class, method, exception).
+ * Switched on and off at runtime through the {@code servicetiming} actuator endpoint; when off,
+ * the advice costs one volatile read.
+ */
+@Aspect
+@Component
+public class ServiceTimingAspect {
+
+    private final MeterRegistry registry;
+    private volatile boolean enabled;
+
+    // successful calls are the hot path, so their timers are resolved once per method
+    private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+
+    public ServiceTimingAspect(MeterRegistry registry,
+                               @Value("${app.metrics.service-timing.enabled:true}") boolean enabled) {
+        this.registry = registry;
+        this.enabled = enabled;
+    }
+
+    @Around("execution(public * com.example.personcrud.service..*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!enabled) return joinPoint.proceed();
+        long start = System.nanoTime();
+        Throwable failure = null;
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable t) {
+            failure = t;
+            throw t;
+        } finally {
+            Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+            Timer timer = failure == null
+                    ? timers.computeIfAbsent(method, m -> timer(m, "none"))
+                    : timer(method, failure.getClass().getSimpleName());
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(Method method, String exception) {
+        return Timer.builder("service.method")
+                .description("Service method latency")
+                .tag("class", method.getDeclaringClass().getSimpleName())
+                .tag("method", method.getName())
+                .tag("exception", exception)
+                .register(registry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+}
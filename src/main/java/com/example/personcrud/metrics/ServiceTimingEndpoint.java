@@ -0,0 +1,34 @@
+package com.example.personcrud.metrics;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code GET /actuator/servicetiming} shows whether service methods are timed,
+ * {@code POST /actuator/servicetiming {"enabled": false}} switches it.
+ */
+@Component
+@Endpoint(id = "servicetiming")
+public class ServiceTimingEndpoint {
+
+    private final ServiceTimingAspect aspect;
+
+    public ServiceTimingEndpoint(ServiceTimingAspect aspect) {
+        this.aspect = aspect;
+    }
+
+    @ReadOperation
+    public Map<String, Boolean> status() {
+        return Map.of("enabled", aspect.isEnabled());
+    }
+
+    @WriteOperation
+    public Map<String, Boolean> toggle(boolean enabled) {
+        aspect.setEnabled(enabled);
+        return status();
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.personcrud.metrics;
+
+/**
+ * Thrown after a request when {@code app.sql.budget.fail-on-breach} is set and the request ran more
+ * statements or spent more JDBC time than its budget allows. Meant for tests.
+ */
+public class SqlBudgetExceededException extends RuntimeException {
+
+    public SqlBudgetExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.personcrud.metrics;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Times every JDBC execution (a batch counts once), adds it to the current request's
+ * {@link SqlRequestStats} and logs it when it is slower than {@code app.sql.slow-query-threshold}.
+ */
+public class SqlExecutionListener implements QueryExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlExecutionListener.class);
+
+    // executions don't nest on a thread, so one slot per thread is enough
+    private static final ThreadLocal<long[]> STARTED = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final long slowQueryNanos;
+
+    public SqlExecutionListener(Duration slowQueryThreshold) {
+        this.slowQueryNanos = slowQueryThreshold.toNanos();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        STARTED.get()[0] = System.nanoTime();
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        long elapsed = System.nanoTime() - STARTED.get()[0];
+        SqlRequestStats stats = SqlRequestStats.current();
+        boolean slow = elapsed >= slowQueryNanos;
+        if (stats == null && !slow) return;
+
+        String sql = sql(execInfo, queryInfoList);
+        if (stats != null) stats.record(sql, elapsed);
+        if (slow) log.warn("Slow SQL ({} ms): {}", elapsed / 1_000_000, sql);
+    }
+
+    private static String sql(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        String sql = queryInfoList.stream().map(QueryInfo::getQuery).distinct().collect(Collectors.joining("; "));
+        return execInfo.isBatch() ? "[batch of " + execInfo.getBatchSize() + "] " + sql : sql;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.personcrud.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opens a {@link SqlRequestStats} window per API request and afterwards
+ * <ul>
+ *     <li>records {@code http.server.requests.sql} (statements) and {@code http.server.requests.sql.time}
+ *     (JDBC time), tagged like {@code http.server.requests} with method and URI template; a jump in a
+ *     route's statement count is the signature of an N+1 regression;</li>
+ *     <li>logs requests over the statement or time budget together with their statements, and with
+ *     {@code app.sql.budget.fail-on-breach} throws {@link SqlBudgetExceededException}.</li>
+ * </ul>
+ */
+public class SqlRequestFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlRequestFilter.class);
+
+    private final MeterRegistry registry;
+    private final long maxStatements;
+    private final long maxNanos;
+    private final boolean failOnBreach;
+
+    public SqlRequestFilter(MeterRegistry registry, long maxStatements, Duration maxTime, boolean failOnBreach) {
+        this.registry = registry;
+        this.maxStatements = maxStatements;
+        this.maxNanos = maxTime.toNanos();
+        this.failOnBreach = failOnBreach;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlRequestStats.begin();
+        SqlRequestStats stats;
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            stats = SqlRequestStats.end();
+            record(request, stats);
+        }
+
+        if (stats.getStatements() > maxStatements || stats.getNanos() > maxNanos) {
+            String message = String.format("%s %s ran %d SQL statements in %d ms (budget %d statements, %d ms)",
+                    request.getMethod(), request.getRequestURI(), stats.getStatements(), stats.getNanos() / 1_000_000,
+                    maxStatements, maxNanos / 1_000_000);
+            log.warn("{}:\n  {}", message, String.join("\n  ", stats.getRecorded()));
+            if (failOnBreach) throw new SqlBudgetExceededException(message);
+        }
+    }
+
+    private void record(HttpServletRequest request, SqlRequestStats stats) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        DistributionSummary.builder("http.server.requests.sql")
+                .description("SQL statements executed per request")
+                .baseUnit("statements")
+                .tags("method", request.getMethod(), "uri", uri)
+                .register(registry)
+                .record(stats.getStatements());
+        Timer.builder("http.server.requests.sql.time")
+                .description("JDBC time per request")
+                .tags("method", request.getMethod(), "uri", uri)
+                .register(registry)
+                .record(stats.getNanos(), TimeUnit.NANOSECONDS);
+    }
+}
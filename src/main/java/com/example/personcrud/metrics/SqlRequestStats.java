@@ -0,0 +1,57 @@
+package com.example.personcrud.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * JDBC executions and their time on the current thread between {@link #begin()} and {@link #end()}.
+ * Work outside such a window (startup, async dispatches) is not attributed to any request.
+ */
+public final class SqlRequestStats {
+
+    // enough to see the shape of an N+1 without keeping every statement of a bulk request
+    private static final int MAX_RECORDED = 25;
+
+    private static final ThreadLocal<SqlRequestStats> CURRENT = new ThreadLocal<>();
+
+    private long statements;
+    private long nanos;
+    private final List<String> recorded = new ArrayList<>();
+
+    private SqlRequestStats() {
+    }
+
+    public static void begin() {
+        CURRENT.set(new SqlRequestStats());
+    }
+
+    // the closed window; empty when none was open
+    public static SqlRequestStats end() {
+        SqlRequestStats stats = CURRENT.get();
+        CURRENT.remove();
+        return stats == null ? new SqlRequestStats() : stats;
+    }
+
+    static SqlRequestStats current() {
+        return CURRENT.get();
+    }
+
+    void record(String sql, long elapsedNanos) {
+        statements++;
+        nanos += elapsedNanos;
+        if (recorded.size() < MAX_RECORDED) recorded.add(elapsedNanos / 1_000 + " us  " + sql);
+    }
+
+    public long getStatements() {
+        return statements;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public List<String> getRecorded() {
+        return Collections.unmodifiableList(recorded);
+    }
+}
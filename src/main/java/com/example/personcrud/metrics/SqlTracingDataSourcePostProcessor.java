@@ -0,0 +1,29 @@
+package com.example.personcrud.metrics;
+
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Wraps the application's {@link DataSource} so every JDBC execution passes through
+ * {@link SqlExecutionListener}. The proxy still unwraps to the Hikari pool for its metrics.
+ */
+public class SqlTracingDataSourcePostProcessor implements BeanPostProcessor {
+
+    private final Duration slowQueryThreshold;
+
+    public SqlTracingDataSourcePostProcessor(Duration slowQueryThreshold) {
+        this.slowQueryThreshold = slowQueryThreshold;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource dataSource)) return bean;
+        return ProxyDataSourceBuilder.create(dataSource)
+                .name(beanName)
+                .listener(new SqlExecutionListener(slowQueryThreshold))
+                .build();
+    }
+}
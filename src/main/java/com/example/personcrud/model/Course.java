@@ -1,26 +1,41 @@
 package com.example.personcrud.model;
 
 import jakarta.persistence.*;
-import java.util.ArrayList;
-import java.util.List;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 @Entity
+@Table(indexes = @Index(name = "idx_course_teacher", columnList = "teacher_id"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Course {
 
+    // pooled sequence like Person so generated courses can be batch-inserted
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "course_seq")
+    @SequenceGenerator(name = "course_seq", sequenceName = "course_seq", allocationSize = 50)
     private Long id;
 
     private String name;
 
+    @Version
+    private Long version;
+
     @ManyToOne
     private Teacher teacher;
 
+    // a Set (not a bag) so Hibernate writes only the rows that changed instead of recreating the collection
     @ManyToMany
     @JoinTable(name = "course_students",
             joinColumns = @JoinColumn(name = "course_id"),
-            inverseJoinColumns = @JoinColumn(name = "student_id"))
-    private List<Student> students = new ArrayList<>();
+            inverseJoinColumns = @JoinColumn(name = "student_id"),
+            indexes = @Index(name = "idx_course_students_student", columnList = "student_id, course_id"))
+    @OrderBy("id")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    private Set<Student> students = new LinkedHashSet<>();
 
     public Course() {
     }
@@ -46,6 +61,14 @@ public class Course {
         this.name = name;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public Teacher getTeacher() {
         return teacher;
     }
@@ -54,11 +77,11 @@ public class Course {
         this.teacher = teacher;
     }
 
-    public List<Student> getStudents() {
+    public Set<Student> getStudents() {
         return students;
     }
 
-    public void setStudents(List<Student> students) {
+    public void setStudents(Set<Student> students) {
         this.students = students;
     }
 }
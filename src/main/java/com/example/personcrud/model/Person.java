@@ -1,28 +1,59 @@
 package com.example.personcrud.model;
 
+import com.example.personcrud.search.SearchKeys;
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Inheritance;
 import jakarta.persistence.InheritanceType;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.persistence.DiscriminatorColumn;
 import jakarta.persistence.DiscriminatorType;
 import jakarta.persistence.DiscriminatorValue;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(indexes = {
+        @Index(name = "idx_person_last_name_key", columnList = "last_name_key"),
+        @Index(name = "idx_person_first_name_key", columnList = "first_name_key"),
+        @Index(name = "idx_person_email_key", columnList = "email_key")
+})
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "person_type", discriminatorType = DiscriminatorType.STRING)
 @DiscriminatorValue("PERSON")
 public class Person {
 
+    // pooled sequence instead of IDENTITY so Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "person_seq")
+    @SequenceGenerator(name = "person_seq", sequenceName = "person_seq", allocationSize = 50)
     private Long id;
     private String firstName;
     private String lastName;
     private String email;
 
+    @Version
+    private Long version;
+
+    // normalized copies of the name and email columns, indexed for exact and prefix search
+    @Column(name = "first_name_key")
+    private String firstNameKey;
+    @Column(name = "last_name_key")
+    private String lastNameKey;
+    @Column(name = "email_key")
+    private String emailKey;
+
     public Person() {
     }
 
@@ -63,4 +94,20 @@ public class Person {
     public void setEmail(String email) {
         this.email = email;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void updateSearchKeys() {
+        firstNameKey = SearchKeys.normalize(firstName);
+        lastNameKey = SearchKeys.normalize(lastName);
+        emailKey = SearchKeys.normalize(email);
+    }
 }
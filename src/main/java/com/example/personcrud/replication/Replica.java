@@ -0,0 +1,63 @@
+package com.example.personcrud.replication;
+
+import javax.sql.DataSource;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One read replica and how current it is: {@code syncedAt} is the primary's wall-clock time up to which
+ * the replica is known to contain all committed writes (0 until the first sync, or while it reloads).
+ */
+public class Replica {
+
+    private final String name;
+    private final DataSource dataSource;
+    private volatile long syncedAt;
+    // callers between picking this replica and holding a connection from it
+    private final AtomicInteger entering = new AtomicInteger();
+
+    public Replica(String name, DataSource dataSource) {
+        this.name = name;
+        this.dataSource = dataSource;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public long getSyncedAt() {
+        return syncedAt;
+    }
+
+    public void markSynced(long syncedAt) {
+        this.syncedAt = syncedAt;
+    }
+
+    public long lagMillis(long now) {
+        return syncedAt == 0 ? Long.MAX_VALUE : now - syncedAt;
+    }
+
+    /**
+     * Claims the replica for one connection if it is at most {@code maxLagMillis} behind; a successful
+     * call must be paired with {@link #leave()} once the connection is obtained. The claim is taken before
+     * the lag is read, so a reload that first marks the replica unsynced and then sees no claims cannot
+     * miss a caller about to connect.
+     */
+    public boolean enter(long now, long maxLagMillis) {
+        entering.incrementAndGet();
+        if (lagMillis(now) <= maxLagMillis) return true;
+        entering.decrementAndGet();
+        return false;
+    }
+
+    public void leave() {
+        entering.decrementAndGet();
+    }
+
+    public int entering() {
+        return entering.get();
+    }
+}
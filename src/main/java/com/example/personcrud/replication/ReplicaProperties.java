@@ -0,0 +1,68 @@
+package com.example.personcrud.replication;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas behind the routing data source ({@code app.replicas.*}).
+ */
+@ConfigurationProperties(prefix = "app.replicas")
+public class ReplicaProperties {
+
+    private boolean enabled = false;
+
+    // JDBC URLs of the replicas; they use the primary's credentials and pool settings
+    private List<String> urls = new ArrayList<>();
+
+    // replicas further behind than this are skipped and their reads go to the primary
+    private Duration maxLag = Duration.ofSeconds(2);
+
+    // how long a client's reads stay on the primary after it wrote
+    private Duration stickyWindow = Duration.ofSeconds(5);
+
+    // copy the primary into the replicas this often (H2 stand-in for real replication); 0 disables it
+    private Duration standInInterval = Duration.ofSeconds(1);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<String> getUrls() {
+        return urls;
+    }
+
+    public void setUrls(List<String> urls) {
+        this.urls = urls;
+    }
+
+    public Duration getMaxLag() {
+        return maxLag;
+    }
+
+    public void setMaxLag(Duration maxLag) {
+        this.maxLag = maxLag;
+    }
+
+    public Duration getStickyWindow() {
+        return stickyWindow;
+    }
+
+    public void setStickyWindow(Duration stickyWindow) {
+        this.stickyWindow = stickyWindow;
+    }
+
+    public Duration getStandInInterval() {
+        return standInInterval;
+    }
+
+    public void setStandInInterval(Duration standInInterval) {
+        this.standInInterval = standInInterval;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.personcrud.replication;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.sql.SQLException;
+
+/**
+ * Keeps what replicas return out of the second-level and query caches. A read-only transaction that is
+ * not pinned to the primary may be served by a replica up to {@code max-lag} behind; its session is set
+ * to {@link CacheMode#IGNORE}, so a stale result never lands in the cache where a pinned reader would get
+ * it back after its own write. {@code GET} is not enough: Hibernate still stores a query cache miss.
+ */
+class ReplicaReadJpaDialect extends HibernateJpaDialect {
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws PersistenceException, SQLException {
+        Object transactionData = super.beginTransaction(entityManager, definition);
+        if (definition.isReadOnly() && !RoutingContext.isPinnedToPrimary()) {
+            entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+        }
+        return transactionData;
+    }
+}
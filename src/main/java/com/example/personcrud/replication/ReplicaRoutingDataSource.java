@@ -0,0 +1,117 @@
+package com.example.personcrud.replication;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends connections of read-only transactions to a replica that is no more than {@code max-lag} behind,
+ * and everything else to the primary.
+ * <p>
+ * The decision needs the transaction's read-only flag, which Spring only publishes after the JPA
+ * transaction has begun; the data source must therefore sit behind a {@code LazyConnectionDataSourceProxy}
+ * so the physical connection is fetched at the first statement.
+ * <p>
+ * Results read from a replica never enter the second-level or query cache: a write invalidates the cached
+ * entries of its tables at commit, and a lagging replica read stored after that would be served from the
+ * cache to the writer's own pinned reads. {@link ReplicaReadJpaDialect} has transactions that may be
+ * routed here bypass both caches.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private final List<Replica> replicas;
+    private final long maxLagMillis;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Map<String, Counter> routed = new HashMap<>();
+    // the replica claimed by the getConnection call running on this thread
+    private final ThreadLocal<Replica> entered = new ThreadLocal<>();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<Replica> replicas, long maxLagMillis, MeterRegistry registry) {
+        this.replicas = replicas;
+        this.maxLagMillis = maxLagMillis;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        routed.put(PRIMARY, routedCounter(registry, PRIMARY));
+        for (Replica replica : replicas) {
+            targets.put(replica.getName(), replica.getDataSource());
+            routed.put(replica.getName(), routedCounter(registry, replica.getName()));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    private static Counter routedCounter(MeterRegistry registry, String target) {
+        return Counter.builder("datasource.routing")
+                .description("Connections handed out per routing target")
+                .tag("target", target)
+                .register(registry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        try {
+            return super.getConnection();
+        } finally {
+            leave();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        try {
+            return super.getConnection(username, password);
+        } finally {
+            leave();
+        }
+    }
+
+    private void leave() {
+        Replica replica = entered.get();
+        if (replica == null) return;
+        entered.remove();
+        replica.leave();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String key = route();
+        routed.get(key).increment();
+        return key;
+    }
+
+    private String route() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || RoutingContext.isPinnedToPrimary()) {
+            return PRIMARY;
+        }
+        long now = System.currentTimeMillis();
+        // stay on the replica this request already read from, so its reads see one consistent state
+        Replica previous = RoutingContext.replica();
+        if (previous != null && previous.enter(now, maxLagMillis)) {
+            entered.set(previous);
+            return previous.getName();
+        }
+
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(1, replicas.size()));
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica candidate = replicas.get((start + i) % replicas.size());
+            if (candidate.enter(now, maxLagMillis)) {
+                entered.set(candidate);
+                RoutingContext.useReplica(candidate);
+                return candidate.getName();
+            }
+        }
+        return PRIMARY;
+    }
+}
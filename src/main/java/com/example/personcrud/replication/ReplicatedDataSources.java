@@ -0,0 +1,36 @@
+package com.example.personcrud.replication;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.util.List;
+
+/**
+ * The primary pool and the replica pools. Kept out of the context as plain objects so only the routing
+ * proxy is seen as the application's {@code DataSource}.
+ */
+public class ReplicatedDataSources implements AutoCloseable {
+
+    private final HikariDataSource primary;
+    private final List<Replica> replicas;
+
+    public ReplicatedDataSources(HikariDataSource primary, List<Replica> replicas) {
+        this.primary = primary;
+        this.replicas = replicas;
+    }
+
+    public HikariDataSource getPrimary() {
+        return primary;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    public void close() {
+        for (Replica replica : replicas) {
+            if (replica.getDataSource() instanceof HikariDataSource pool) pool.close();
+        }
+        primary.close();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.personcrud.replication;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the single auto-configured pool with a primary and {@code app.replicas.urls} replicas when
+ * {@code app.replicas.enabled=true}. Every pool takes its settings from {@code spring.datasource.hikari.*}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.replicas.enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class ReplicationConfig {
+
+    @Bean(destroyMethod = "close")
+    public ReplicatedDataSources replicatedDataSources(DataSourceProperties properties, ReplicaProperties replicaProperties,
+                                                       Environment environment, MeterRegistry registry) {
+        HikariDataSource primary = pool(properties, properties.determineUrl(), "primary", environment, registry);
+        List<Replica> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaProperties.getUrls().size(); i++) {
+            String name = "replica-" + (i + 1);
+            replicas.add(new Replica(name, pool(properties, replicaProperties.getUrls().get(i), name, environment, registry)));
+        }
+        return new ReplicatedDataSources(primary, replicas);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicatedDataSources sources, ReplicaProperties replicaProperties, MeterRegistry registry) {
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(sources.getPrimary(), sources.getReplicas(),
+                replicaProperties.getMaxLag().toMillis(), registry));
+    }
+
+    // set after initialization: the transaction manager takes the factory's dialect in afterPropertiesSet
+    @Bean
+    public static BeanPostProcessor replicaReadJpaDialect() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof JpaTransactionManager transactionManager) {
+                    transactionManager.setJpaDialect(new ReplicaReadJpaDialect());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean(destroyMethod = "close")
+    public ScriptReplicator scriptReplicator(ReplicatedDataSources sources, ReplicaProperties replicaProperties) {
+        return new ScriptReplicator(sources.getPrimary(), sources.getReplicas(), replicaProperties.getStandInInterval());
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(ReplicaProperties replicaProperties) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(
+                new ReadYourWritesFilter(replicaProperties.getStickyWindow()));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, String url, String name,
+                                         Environment environment, MeterRegistry registry) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).url(url).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+        return pool;
+    }
+}
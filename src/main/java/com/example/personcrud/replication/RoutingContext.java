@@ -0,0 +1,41 @@
+package com.example.personcrud.replication;
+
+/**
+ * Per-request routing state: whether the client must read from the primary, and which replica the
+ * request has read from so far. Threads without a request (startup, async work) route on the
+ * transaction alone.
+ */
+final class RoutingContext {
+
+    private static final ThreadLocal<RoutingContext> CURRENT = new ThreadLocal<>();
+
+    private final boolean pinnedToPrimary;
+    private Replica replica;
+
+    private RoutingContext(boolean pinnedToPrimary) {
+        this.pinnedToPrimary = pinnedToPrimary;
+    }
+
+    static void begin(boolean pinnedToPrimary) {
+        CURRENT.set(new RoutingContext(pinnedToPrimary));
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    static boolean isPinnedToPrimary() {
+        RoutingContext context = CURRENT.get();
+        return context != null && context.pinnedToPrimary;
+    }
+
+    static Replica replica() {
+        RoutingContext context = CURRENT.get();
+        return context == null ? null : context.replica;
+    }
+
+    static void useReplica(Replica replica) {
+        RoutingContext context = CURRENT.get();
+        if (context != null) context.replica = replica;
+    }
+}
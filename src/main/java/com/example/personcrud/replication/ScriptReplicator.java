@@ -0,0 +1,124 @@
+package com.example.personcrud.replication;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stand-in for replication between embedded H2 databases: dumps the primary with {@code SCRIPT} and
+ * reloads every replica from the dump with {@code RUNSCRIPT}. A replica is taken out of rotation and
+ * drained of in-flight connections before it is dropped and reloaded; one that does not drain in time is
+ * left out of rotation until a later sync. Full copies make this only suitable for local runs and tests; real replicas report their
+ * position through {@link Replica#markSynced(long)} instead.
+ */
+public class ScriptReplicator implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ScriptReplicator.class);
+
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(10);
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final Duration interval;
+    private ScheduledExecutorService scheduler;
+
+    public ScriptReplicator(DataSource primary, List<Replica> replicas, Duration interval) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.interval = interval;
+    }
+
+    // after migrations and seeding, so the first copy is complete
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        syncNow();
+        if (interval.isZero() || interval.isNegative()) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                syncNow();
+            } catch (RuntimeException e) {
+                log.warn("Replica sync failed", e);
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void syncNow() {
+        Path script = null;
+        try {
+            script = Files.createTempFile("replica-", ".sql");
+            String file = script.toAbsolutePath().toString().replace("'", "''");
+            // everything committed before the dump starts is in it
+            long snapshotAt = System.currentTimeMillis();
+            execute(primary, "SCRIPT TO '" + file + "'");
+            for (Replica replica : replicas) {
+                replica.markSynced(0);
+                if (!drain(replica)) {
+                    log.warn("Replica {} still has readers after {}, skipping this sync", replica.getName(), DRAIN_TIMEOUT);
+                    continue;
+                }
+                execute(replica.getDataSource(), "DROP ALL OBJECTS", "RUNSCRIPT FROM '" + file + "'");
+                replica.markSynced(snapshotAt);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (script != null) script.toFile().delete();
+        }
+    }
+
+    // no new reader can pick the replica once it is marked unsynced; wait for the ones already on it
+    private static boolean drain(Replica replica) {
+        long deadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+        while (replica.entering() > 0 || activeConnections(replica) > 0) {
+            if (System.nanoTime() > deadline) return false;
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int activeConnections(Replica replica) {
+        if (!(replica.getDataSource() instanceof HikariDataSource pool)) return 0;
+        HikariPoolMXBean mxBean = pool.getHikariPoolMXBean();
+        return mxBean == null ? 0 : mxBean.getActiveConnections();
+    }
+
+    private static void execute(DataSource dataSource, String... sql) {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            for (String s : sql) statement.execute(s);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Replica sync failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+}
@@ -1,9 +1,91 @@
 package com.example.personcrud.repository;
 
+import com.example.personcrud.dto.CourseStats;
+import com.example.personcrud.dto.TeacherLoad;
 import com.example.personcrud.model.Course;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface CourseRepository extends JpaRepository<Course, Long> {
+
+    @Query("select count(c) as count, coalesce(max(c.id), 0) as maxId, coalesce(sum(c.version), 0) as versionSum from Course c")
+    TableVersion tableVersion();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("select c.id as courseId, c.name as name, c.version as version, t.id as teacherId, s.id as studentId "
+            + "from Course c left join c.teacher t left join c.students s order by c.id, s.id")
+    List<CourseStudentRow> findAllRows();
+
+    // one chunk of a full listing; not cacheable, a scan of the table would only flood the query cache
+    @Query("select c.id from Course c where c.id > :after order by c.id")
+    List<Long> findIdChunk(@Param("after") long after, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("select c.id as courseId, c.name as name, c.version as version, t.id as teacherId, s.id as studentId "
+            + "from Course c left join c.teacher t left join c.students s where c.id = :id")
+    List<CourseStudentRow> findRowsById(@Param("id") Long id);
+
+    @Query("select c.id as courseId, c.name as name, c.version as version, t.id as teacherId, s.id as studentId "
+            + "from Course c left join c.teacher t left join c.students s where c.id in :ids order by c.id, s.id")
+    List<CourseStudentRow> findRowsByIds(@Param("ids") Collection<Long> ids);
+
+    // aggregates are grouped in SQL so clients no longer download every course to count enrollments
+    @Query("select new com.example.personcrud.dto.CourseStats(c.id, c.name, c.teacher.id, count(s.id)) "
+            + "from Course c left join c.students s group by c.id, c.name, c.teacher.id order by c.id")
+    List<CourseStats> findStats();
+
+    // reverse lookups seek past the cursor on idx_course_teacher / idx_course_students_student, so a page
+    // costs O(page) whatever the total number of courses; results go to the query cache, which is
+    // invalidated by any write to course or course_students
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("select new com.example.personcrud.dto.CourseStats(c.id, c.name, c.teacher.id, count(s.id)) "
+            + "from Course c left join c.students s where c.teacher.id = :teacherId and c.id > :after "
+            + "group by c.id, c.name, c.teacher.id order by c.id")
+    List<CourseStats> findStatsByTeacher(@Param("teacherId") Long teacherId, @Param("after") long after, Pageable pageable);
+
+    // e narrows to the student's enrollments, s counts the whole course
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("select new com.example.personcrud.dto.CourseStats(c.id, c.name, c.teacher.id, count(s.id)) "
+            + "from Course c join c.students e left join c.students s where e.id = :studentId and c.id > :after "
+            + "group by c.id, c.name, c.teacher.id order by c.id")
+    List<CourseStats> findStatsByStudent(@Param("studentId") Long studentId, @Param("after") long after, Pageable pageable);
+
+    // teachers without courses are listed with zero load
+    @Query("select new com.example.personcrud.dto.TeacherLoad(t.id, t.firstName, t.lastName, "
+            + "count(distinct c.id), count(s.id), count(distinct s.id)) "
+            + "from Teacher t left join Course c on c.teacher = t left join c.students s "
+            + "group by t.id, t.firstName, t.lastName order by count(s.id) desc, t.id")
+    List<TeacherLoad> findTeacherLoad();
+
+    // set-based enrollment: one statement per request regardless of how many ids are passed.
+    // The native space hint limits cache invalidation to regions backed by course_students.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "course_students"))
+    @Modifying(clearAutomatically = true)
+    @Query(value = "insert into course_students (course_id, student_id) "
+            + "select :courseId, p.id from person p where p.id in (:studentIds) and p.person_type = 'STUDENT' "
+            + "and not exists (select 1 from course_students cs where cs.course_id = :courseId and cs.student_id = p.id)",
+            nativeQuery = true)
+    int insertStudents(@Param("courseId") Long courseId, @Param("studentIds") Collection<Long> studentIds);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "course_students"))
+    @Modifying(clearAutomatically = true)
+    @Query(value = "delete from course_students where course_id = :courseId and student_id in (:studentIds)",
+            nativeQuery = true)
+    int deleteStudents(@Param("courseId") Long courseId, @Param("studentIds") Collection<Long> studentIds);
+
+    // the set-based statements bypass Hibernate's collection tracking, so bump the owner's version by hand
+    @Modifying(clearAutomatically = true)
+    @Query("update Course c set c.version = c.version + 1 where c.id = :id")
+    int incrementVersion(@Param("id") Long id);
 }
@@ -0,0 +1,18 @@
+package com.example.personcrud.repository;
+
+/**
+ * Flat (course, student) tuple used to build course listings in one query.
+ * A course without students yields one row with a null studentId.
+ */
+public interface CourseStudentRow {
+
+    Long getCourseId();
+
+    String getName();
+
+    Long getVersion();
+
+    Long getTeacherId();
+
+    Long getStudentId();
+}
@@ -1,12 +1,64 @@
 package com.example.personcrud.repository;
 
 import com.example.personcrud.model.Person;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface PersonRepository extends JpaRepository<Person, Long> {
-    List<Person> findByLastNameIgnoreCase(String lastName);
+    // lastNameKey is the normalized, indexed copy of lastName; pass SearchKeys.normalize(lastName)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Person> findByLastNameKeyOrderById(String lastNameKey);
+
+    // each branch is an index range scan on one normalized column cut to its own top rows, so the union only
+    // merges at most three windows; an "id in (union)" form made H2 probe the whole id list per row
+    @Query(value = "select * from ("
+            + "(select * from person where last_name_key like :prefix escape '\\' "
+            + "order by last_name_key, first_name_key, id limit :#{#limit + #offset}) "
+            + "union (select * from person where first_name_key like :prefix escape '\\' "
+            + "order by last_name_key, first_name_key, id limit :#{#limit + #offset}) "
+            + "union (select * from person where email_key like :prefix escape '\\' "
+            + "order by last_name_key, first_name_key, id limit :#{#limit + #offset})) u "
+            + "order by last_name_key, first_name_key, id limit :limit offset :offset",
+            nativeQuery = true)
+    List<Person> searchByPrefix(@Param("prefix") String prefix, @Param("limit") int limit, @Param("offset") long offset);
+
+    @Query("select count(p) as count, coalesce(max(p.id), 0) as maxId, coalesce(sum(p.version), 0) as versionSum from Person p")
+    TableVersion tableVersion();
+
+    @Query("select p.id from Person p where p.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select s.id from Student s where s.id in :ids")
+    List<Long> findStudentIds(@Param("ids") Collection<Long> ids);
+
+    // keyset pagination: seeks past the cursor on the primary key index instead of using OFFSET
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Person> findByIdGreaterThanOrderByIdAsc(Long after, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Person> findAllByOrderByIdAsc(Pageable pageable);
+
+    // one chunk of a full listing; not cacheable, a scan of the table would only flood the query cache
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("select p from Person p where p.id > :after order by p.id")
+    List<Person> findChunk(@Param("after") long after, Pageable pageable);
+
+    // rows are pulled from the JDBC cursor in fetch-size chunks; caller must close the stream inside a transaction
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select p from Person p order by p.id")
+    Stream<Person> streamAllOrderById();
 }
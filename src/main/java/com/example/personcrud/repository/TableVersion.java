@@ -0,0 +1,21 @@
+package com.example.personcrud.repository;
+
+/**
+ * Aggregate fingerprint of a table used for collection ETags. Inserts raise the count and the
+ * max id, deletes lower the count, and every update raises the version sum.
+ * <p>
+ * The tag is weak: the same table state is served in several representations (fields, encodings,
+ * gzip), and Tomcat does not compress responses that carry a strong ETag.
+ */
+public interface TableVersion {
+
+    long getCount();
+
+    long getMaxId();
+
+    long getVersionSum();
+
+    default String toETag(String prefix) {
+        return "W/\"" + prefix + "-" + getCount() + "-" + getMaxId() + "-" + getVersionSum() + "\"";
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.personcrud.search;
+
+import com.example.personcrud.model.Person;
+import com.example.personcrud.repository.PersonRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * In-process trigram index over first name, last name and email for typo-tolerant lookups.
+ * Built once from the database at startup and kept current by the entity change listener; a write reaches
+ * the index only once its transaction commits, so a rollback leaves no trace and a search never ranks a
+ * row the database does not hold.
+ */
+@Component
+public class PersonSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(PersonSearchIndex.class);
+
+    private final PersonRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final double minScore;
+    private final boolean asyncBuild;
+
+    // trigram -> ids of persons having it, and id -> the trigrams indexed for that person
+    private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+    private final Map<Long, String[]> documents = new ConcurrentHashMap<>();
+
+    // ids removed while the initial load runs, so a row it streamed before the delete is not brought back
+    private final Set<Long> removedDuringLoad = ConcurrentHashMap.newKeySet();
+    private volatile boolean loading;
+
+    public PersonSearchIndex(PersonRepository repository, TransactionTemplate transactionTemplate,
+                             @Value("${app.search.fuzzy.enabled:true}") boolean enabled,
+                             @Value("${app.search.fuzzy.min-score:0.5}") double minScore,
+                             @Value("${app.search.fuzzy.async-build:false}") boolean asyncBuild) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.minScore = minScore;
+        this.asyncBuild = asyncBuild;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (!enabled) return;
+        loading = true;
+        if (!asyncBuild) {
+            load();
+            return;
+        }
+        // until the load finishes, fuzzy search only sees persons written since startup
+        Thread loader = new Thread(this::load, "person-search-index");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void load() {
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Person> persons = repository.streamAllOrderById()) {
+                    persons.forEach(this::putLoaded);
+                }
+            });
+        } finally {
+            loading = false;
+            removedDuringLoad.clear();
+        }
+        log.info("Indexed {} persons for fuzzy search in {} ms", documents.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // the terms are taken now, while the entity still holds what is being written
+    public void personSaved(Person person) {
+        if (!enabled || person.getId() == null) return;
+        Long id = person.getId();
+        String[] terms = terms(person);
+        afterCommit(() -> put(id, terms));
+    }
+
+    public void personDeleted(Long id) {
+        if (!enabled) return;
+        afterCommit(() -> remove(id));
+    }
+
+    private void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<Runnable> pending = (List<Runnable>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<Runnable> changes = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, changes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    changes.forEach(Runnable::run);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PersonSearchIndex.this);
+                }
+            });
+            pending = changes;
+        }
+        pending.add(change);
+    }
+
+    private void put(Long id, String[] terms) {
+        documents.compute(id, (key, old) -> reindex(key, old, terms));
+    }
+
+    // a person indexed or removed since the load started was written after the streamed row, which loses
+    private void putLoaded(Person person) {
+        String[] terms = terms(person);
+        documents.compute(person.getId(),
+                (id, old) -> old != null || removedDuringLoad.contains(id) ? old : reindex(id, null, terms));
+    }
+
+    private void remove(Long id) {
+        documents.compute(id, (key, old) -> {
+            if (loading) removedDuringLoad.add(key);
+            return reindex(key, old, null);
+        });
+    }
+
+    /**
+     * Replaces the postings of one person; called inside {@code documents.compute}, so writers and the
+     * loader touching the same id run one after the other. Returns the new terms, null to unindex.
+     */
+    private String[] reindex(Long id, String[] old, String[] terms) {
+        if (old != null) {
+            for (String gram : old) {
+                Set<Long> ids = postings.get(gram);
+                if (ids != null) ids.remove(id);
+            }
+        }
+        if (terms != null) {
+            for (String gram : terms) {
+                postings.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+        }
+        return terms;
+    }
+
+    private static String[] terms(Person person) {
+        Set<String> grams = new LinkedHashSet<>();
+        addTrigrams(person.getFirstName(), grams);
+        addTrigrams(person.getLastName(), grams);
+        addTrigrams(localPart(person.getEmail()), grams);
+        return grams.toArray(new String[0]);
+    }
+
+    /**
+     * Returns ids ordered by the share of the query's trigrams they contain, best first.
+     * Persons matching less than {@code app.search.fuzzy.min-score} of the query are left out.
+     */
+    public List<Long> search(String query, int limit, int offset) {
+        if (!enabled) return List.of();
+        Set<String> queryGrams = new LinkedHashSet<>();
+        addTrigrams(query, queryGrams);
+        if (queryGrams.isEmpty()) return List.of();
+
+        Map<Long, Integer> hits = new HashMap<>();
+        for (String gram : queryGrams) {
+            Set<Long> ids = postings.get(gram);
+            if (ids == null) continue;
+            for (Long id : ids) hits.merge(id, 1, Integer::sum);
+        }
+
+        int needed = (int) Math.ceil(queryGrams.size() * minScore);
+        List<Map.Entry<Long, Integer>> matches = new ArrayList<>();
+        for (Map.Entry<Long, Integer> e : hits.entrySet()) {
+            if (e.getValue() >= needed) matches.add(e);
+        }
+        // more shared trigrams first; among equals prefer shorter documents, then lower ids
+        matches.sort((a, b) -> {
+            int c = Integer.compare(b.getValue(), a.getValue());
+            if (c != 0) return c;
+            c = Integer.compare(documentSize(a.getKey()), documentSize(b.getKey()));
+            return c != 0 ? c : Long.compare(a.getKey(), b.getKey());
+        });
+        return matches.stream().skip(offset).limit(limit).map(Map.Entry::getKey).toList();
+    }
+
+    private int documentSize(Long id) {
+        String[] terms = documents.get(id);
+        return terms == null ? Integer.MAX_VALUE : terms.length;
+    }
+
+    private static String localPart(String email) {
+        if (email == null) return null;
+        int at = email.indexOf('@');
+        return at < 0 ? email : email.substring(0, at);
+    }
+
+    // pg_trgm style padding: two leading blanks and one trailing, so short words still get trigrams
+    private static void addTrigrams(String value, Set<String> out) {
+        String key = SearchKeys.normalize(value);
+        if (key == null) return;
+        for (String word : key.split("[\\s@.]+")) {
+            if (word.isEmpty()) continue;
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                out.add(padded.substring(i, i + 3));
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.personcrud.search;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalization shared by the indexed search columns and the queries that hit them:
+ * lower case, trimmed and without diacritics, so "Müller" and "muller" match the same index entry.
+ */
+public final class SearchKeys {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private SearchKeys() {
+    }
+
+    public static String normalize(String value) {
+        if (value == null) return null;
+        String decomposed = Normalizer.normalize(value.trim(), Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    // LIKE pattern matching values that start with the normalized input
+    public static String prefixPattern(String value) {
+        String key = normalize(value);
+        StringBuilder sb = new StringBuilder(key.length() + 1);
+        for (char c : key.toCharArray()) {
+            if (c == '%' || c == '_' || c == '\\') sb.append('\\');
+            sb.append(c);
+        }
+        return sb.append('%').toString();
+    }
+}
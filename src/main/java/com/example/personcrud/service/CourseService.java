@@ -1,69 +1,377 @@
 package com.example.personcrud.service;
 
+import com.example.personcrud.audit.AuditEvent;
+import com.example.personcrud.audit.AuditLog;
+import com.example.personcrud.changes.ChangeLog;
+import com.example.personcrud.dto.CourseDto;
+import com.example.personcrud.dto.CourseStats;
+import com.example.personcrud.dto.CursorPage;
+import com.example.personcrud.dto.TeacherLoad;
+import com.example.personcrud.enrollment.EnrollmentModel;
+import com.example.personcrud.mapper.CourseMapper;
 import com.example.personcrud.model.Course;
+import com.example.personcrud.model.Person;
 import com.example.personcrud.model.Student;
 import com.example.personcrud.model.Teacher;
 import com.example.personcrud.repository.CourseRepository;
+import com.example.personcrud.repository.CourseStudentRow;
 import com.example.personcrud.repository.PersonRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class CourseService {
 
+    public static final List<String> FIELDS = List.of("id", "name", "teacherId", "studentIds", "version");
+
+    private static final Map<String, String> COLUMNS = Map.of(
+            "id", "c.id",
+            "name", "c.name",
+            "teacherId", "c.teacher.id",
+            "studentIds", "s.id",
+            "version", "c.version");
+
     private final CourseRepository courseRepository;
     private final PersonRepository personRepository;
+    private final EntityManager entityManager;
+    private final AuditLog auditLog;
+    private final ChangeLog changeLog;
+    private final EnrollmentModel enrollmentModel;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int listingChunkSize;
 
-    public CourseService(CourseRepository courseRepository, PersonRepository personRepository) {
+    public CourseService(CourseRepository courseRepository, PersonRepository personRepository, EntityManager entityManager,
+                         AuditLog auditLog, ChangeLog changeLog, EnrollmentModel enrollmentModel,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${app.listings.chunk-size:1000}") int listingChunkSize) {
         this.courseRepository = courseRepository;
         this.personRepository = personRepository;
+        this.entityManager = entityManager;
+        this.auditLog = auditLog;
+        this.changeLog = changeLog;
+        this.enrollmentModel = enrollmentModel;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.listingChunkSize = listingChunkSize;
+    }
+
+    // read path for listings: one flat query instead of loading students per course
+    @Transactional(readOnly = true)
+    public List<CourseDto> findAllDtos() {
+        return fold(courseRepository.findAllRows());
+    }
+
+    // keyset chunks of courses, each folded in its own short transaction and handed out after it ends, so a
+    // slow client never holds a pooled connection; each chunk is consistent, the listing is not a snapshot
+    public void streamAllDtos(Consumer<CourseDto> action) {
+        long after = 0;
+        while (after >= 0) {
+            long cursor = after;
+            // the next cursor comes from the ids, a course deleted between the two queries must not end the listing
+            long[] next = {-1};
+            List<CourseDto> chunk = readOnlyTransaction.execute(status -> {
+                List<Long> ids = courseRepository.findIdChunk(cursor, PageRequest.of(0, listingChunkSize));
+                if (ids.isEmpty()) return List.<CourseDto>of();
+                if (ids.size() == listingChunkSize) next[0] = ids.get(ids.size() - 1);
+                return fold(courseRepository.findRowsByIds(ids));
+            });
+            chunk.forEach(action);
+            after = next[0];
+        }
+    }
+
+    // served from the enrollment model while it is loaded
+    @Transactional(readOnly = true)
+    public Optional<CourseDto> findDtoById(Long id) {
+        return enrollmentModel.view().map(view -> view.course(id)).orElseGet(() -> loadDto(id));
+    }
+
+    // writes read their result back from the database, the model only sees them once they commit
+    private Optional<CourseDto> loadDto(Long id) {
+        return fold(courseRepository.findRowsById(id)).stream().findFirst();
+    }
+
+    @Transactional(readOnly = true)
+    public List<CourseDto> findDtosByIds(Collection<Long> ids) {
+        return fold(courseRepository.findRowsByIds(ids));
+    }
+
+    // the course_students join is only made when studentIds is requested, e.g. not for a name dropdown
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findAllFields(FieldSet fields) {
+        boolean students = fields.contains("studentIds");
+        // c.id leads every row so rows of the same course can be folded together
+        String select = Stream.concat(Stream.of("c.id"), fields.names().stream().map(COLUMNS::get)).collect(Collectors.joining(", "));
+        String jpql = "select " + select + " from Course c" + (students ? " left join c.students s order by c.id, s.id" : " order by c.id");
+        Map<Long, Map<String, Object>> byId = new LinkedHashMap<>();
+        for (Tuple row : entityManager.createQuery(jpql, Tuple.class).getResultList()) {
+            Map<String, Object> values = byId.computeIfAbsent((Long) row.get(0), id -> {
+                Map<String, Object> v = new LinkedHashMap<>();
+                for (int i = 0; i < fields.names().size(); i++) {
+                    String field = fields.names().get(i);
+                    v.put(field, "studentIds".equals(field) ? new ArrayList<Long>() : row.get(i + 1));
+                }
+                return v;
+            });
+            if (students) {
+                Object studentId = row.get(fields.names().indexOf("studentIds") + 1);
+                if (studentId != null) {
+                    @SuppressWarnings("unchecked")
+                    List<Long> ids = (List<Long>) values.get("studentIds");
+                    ids.add((Long) studentId);
+                }
+            }
+        }
+        return new ArrayList<>(byId.values());
+    }
+
+    // the collection version and the counts always come from the same source: one snapshot of the model,
+    // or else one transaction on the database
+    @Transactional(readOnly = true)
+    public EnrollmentModel.CourseTable findStats() {
+        return enrollmentModel.view().map(EnrollmentModel.View::stats)
+                .orElseGet(() -> new EnrollmentModel.CourseTable(courseRepository.tableVersion(), courseRepository.findStats()));
+    }
+
+    @Transactional(readOnly = true)
+    public List<TeacherLoad> findTeacherLoad() {
+        return courseRepository.findTeacherLoad();
+    }
+
+    // courses a student is enrolled in or a teacher teaches; empty when the person does not exist
+    @Transactional(readOnly = true)
+    public Optional<List<CourseStats>> findStatsByPerson(Long personId) {
+        return enrollmentModel.view().map(view -> view.coursesOf(personId, 0, Integer.MAX_VALUE))
+                .orElseGet(() -> personRepository.findById(personId).map(p -> coursesOf(p, 0, Pageable.unpaged())));
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<CursorPage<CourseStats>> findStatsPageByPerson(Long personId, Long after, int limit) {
+        long from = after == null ? 0 : after;
+        // fetch one extra row to know whether another page exists without a count query
+        Optional<List<CourseStats>> found = enrollmentModel.view().map(view -> view.coursesOf(personId, from, limit + 1))
+                .orElseGet(() -> personRepository.findById(personId).map(p -> coursesOf(p, from, PageRequest.of(0, limit + 1))));
+        return found.map(rows -> {
+            if (rows.size() <= limit) {
+                return new CursorPage<>(rows, null);
+            }
+            List<CourseStats> items = rows.subList(0, limit);
+            return new CursorPage<>(items, items.get(limit - 1).getCourseId());
+        });
     }
 
-    public List<Course> findAll() {
-        return courseRepository.findAll();
+    private List<CourseStats> coursesOf(Person person, long after, Pageable pageable) {
+        return person instanceof Teacher
+                ? courseRepository.findStatsByTeacher(person.getId(), after, pageable)
+                : courseRepository.findStatsByStudent(person.getId(), after, pageable);
     }
 
-    public Optional<Course> findById(Long id) {
-        return courseRepository.findById(id);
+    private static List<CourseDto> fold(List<CourseStudentRow> rows) {
+        Map<Long, CourseDto> byId = new LinkedHashMap<>();
+        for (CourseStudentRow row : rows) {
+            CourseDto dto = byId.computeIfAbsent(row.getCourseId(),
+                    id -> {
+                        CourseDto d = new CourseDto(id, row.getName(), row.getTeacherId(), new ArrayList<>());
+                        d.setVersion(row.getVersion());
+                        return d;
+                    });
+            if (row.getStudentId() != null) {
+                dto.getStudentIds().add(row.getStudentId());
+            }
+        }
+        return new ArrayList<>(byId.values());
     }
 
-    public Course create(Course course) {
+    @Transactional
+    public CourseDto create(Course course) {
         course.setId(null);
         // ensure teacher and students are managed
-        if (course.getTeacher() != null && course.getTeacher().getId() != null) {
-            personRepository.findById(course.getTeacher().getId())
-                    .ifPresent(p -> course.setTeacher((Teacher) p));
+        References refs = resolve(course);
+        if (refs.teacher() != null) {
+            course.setTeacher(refs.teacher());
         }
-        if (course.getStudents() != null) {
-            List<Student> managed = course.getStudents().stream()
-                    .map(s -> personRepository.findById(s.getId()).map(p -> (Student) p).orElse(null))
-                    .filter(java.util.Objects::nonNull)
-                    .collect(Collectors.toList());
-            course.setStudents(managed);
+        if (refs.students() != null) {
+            course.setStudents(refs.students());
         }
-        return courseRepository.save(course);
+        return CourseMapper.toDto(courseRepository.save(course));
+    }
+
+    @Transactional(readOnly = true)
+    public String collectionETag() {
+        return courseRepository.tableVersion().toETag("courses");
     }
 
-    public Optional<Course> update(Long id, Course course) {
+    // expectedVersion comes from If-Match; null means an unconditional update
+    @Transactional
+    public Optional<CourseDto> update(Long id, Course course, Long expectedVersion) {
         return courseRepository.findById(id).map(existing -> {
+            if (expectedVersion != null && !expectedVersion.equals(existing.getVersion())) {
+                throw new VersionMismatchException(expectedVersion, existing.getVersion());
+            }
+            References refs = resolve(course);
             existing.setName(course.getName());
-            if (course.getTeacher() != null && course.getTeacher().getId() != null) {
-                personRepository.findById(course.getTeacher().getId()).ifPresent(p -> existing.setTeacher((Teacher) p));
+            if (refs.teacher() != null) {
+                existing.setTeacher(refs.teacher());
             }
-            if (course.getStudents() != null) {
-                List<Student> managed = course.getStudents().stream()
-                        .map(s -> personRepository.findById(s.getId()).map(p -> (Student) p).orElse(null))
-                        .filter(java.util.Objects::nonNull)
-                        .collect(Collectors.toList());
-                existing.setStudents(managed);
+            if (refs.students() != null) {
+                // mutate the managed set in place so only the difference is written to course_students
+                existing.getStudents().retainAll(refs.students());
+                existing.getStudents().addAll(refs.students());
             }
-            return courseRepository.save(existing);
+            // flushed here so the returned version is the one being committed
+            return CourseMapper.toDto(courseRepository.saveAndFlush(existing));
         });
     }
 
+    // null teacher or students: not given in the request, leave as they are
+    private record References(Teacher teacher, Set<Student> students) {
+    }
+
+    // checks the teacher and the students before reporting, so one error lists every invalid reference
+    private References resolve(Course course) {
+        List<InvalidReferenceException.Invalid> errors = new ArrayList<>();
+        Teacher teacher = course.getTeacher() != null && course.getTeacher().getId() != null
+                ? resolveTeacher(course.getTeacher().getId(), errors)
+                : null;
+        Set<Student> students = course.getStudents() != null ? resolveStudents(course.getStudents(), errors) : null;
+        if (!errors.isEmpty()) {
+            throw new InvalidReferenceException(errors);
+        }
+        return new References(teacher, students);
+    }
+
+    private Teacher resolveTeacher(Long id, List<InvalidReferenceException.Invalid> errors) {
+        Person p = personRepository.findById(id).orElse(null);
+        if (p == null) {
+            errors.add(new InvalidReferenceException.Invalid("teacherId", List.of(id), List.of()));
+        } else if (!(p instanceof Teacher)) {
+            errors.add(new InvalidReferenceException.Invalid("teacherId", List.of(), List.of(id)));
+        }
+        return p instanceof Teacher t ? t : null;
+    }
+
+    // resolves every id with a single IN query and reports all unknown or non-student ids together
+    private Set<Student> resolveStudents(Set<Student> refs, List<InvalidReferenceException.Invalid> errors) {
+        Set<Long> ids = refs.stream().map(Student::getId).filter(Objects::nonNull).collect(Collectors.toCollection(LinkedHashSet::new));
+        if (ids.isEmpty()) {
+            return new LinkedHashSet<>();
+        }
+        Map<Long, Person> found = personRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Person::getId, Function.identity()));
+        List<Long> unknown = new ArrayList<>();
+        List<Long> wrongType = new ArrayList<>();
+        Set<Student> students = new LinkedHashSet<>();
+        for (Long id : ids) {
+            Person p = found.get(id);
+            if (p == null) unknown.add(id);
+            else if (!(p instanceof Student)) wrongType.add(id);
+            else students.add((Student) p);
+        }
+        if (!unknown.isEmpty() || !wrongType.isEmpty()) {
+            errors.add(new InvalidReferenceException.Invalid("studentIds", unknown, wrongType));
+        }
+        return students;
+    }
+
+    @Transactional
+    public Optional<CourseDto> addStudents(Long courseId, Set<Long> studentIds) {
+        if (!courseRepository.existsById(courseId)) {
+            return Optional.empty();
+        }
+        Set<Long> ids = nonNullIds(studentIds);
+        if (!ids.isEmpty()) {
+            requireStudentIds(ids);
+            if (courseRepository.insertStudents(courseId, ids) > 0) {
+                courseRepository.incrementVersion(courseId);
+                CourseDto course = loadDto(courseId).orElseThrow();
+                // no entity events: the change log, the enrollment model and the audit log are told here
+                recordSetBasedEnrollmentChange(course, "studentsAdded", ids);
+                return Optional.of(course);
+            }
+        }
+        return loadDto(courseId);
+    }
+
+    @Transactional
+    public Optional<CourseDto> removeStudents(Long courseId, Set<Long> studentIds) {
+        if (!courseRepository.existsById(courseId)) {
+            return Optional.empty();
+        }
+        Set<Long> ids = nonNullIds(studentIds);
+        if (!ids.isEmpty()) {
+            if (courseRepository.deleteStudents(courseId, ids) > 0) {
+                courseRepository.incrementVersion(courseId);
+                CourseDto course = loadDto(courseId).orElseThrow();
+                // no entity events: the change log, the enrollment model and the audit log are told here
+                recordSetBasedEnrollmentChange(course, "studentsRemoved", ids);
+                return Optional.of(course);
+            }
+        }
+        return loadDto(courseId);
+    }
+
+    /**
+     * Does for a set-based enrollment change what the entity listener does for entity writes: records a
+     * change log entry and the course's new state for the enrollment model, both applied on commit, and
+     * an audit event. The audit event lists the requested ids, of which already (un)enrolled ones were no-ops.
+     */
+    private void recordSetBasedEnrollmentChange(CourseDto course, String change, Set<Long> studentIds) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        changeLog.record(session, ChangeLog.COURSE, course.getId(), ChangeLog.Operation.UPDATE);
+        enrollmentModel.courseSaved(session, course);
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("name", course.getName());
+        state.put("teacherId", course.getTeacherId());
+        state.put(change, List.copyOf(studentIds));
+        AuditEvent event = new AuditEvent("Course", course.getId(), AuditEvent.Operation.UPDATE, course.getVersion(), state);
+        event.setChanged(List.of("students"));
+        auditLog.capture(event);
+    }
+
+    private static Set<Long> nonNullIds(Set<Long> ids) {
+        return ids == null ? Set.of() : ids.stream().filter(Objects::nonNull).collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    // id-only check for the set-based paths; the second query only runs when something is wrong
+    private void requireStudentIds(Set<Long> ids) {
+        Set<Long> students = new HashSet<>(personRepository.findStudentIds(ids));
+        if (students.size() == ids.size()) {
+            return;
+        }
+        Set<Long> existing = new HashSet<>(personRepository.findExistingIds(ids));
+        List<Long> unknown = new ArrayList<>();
+        List<Long> wrongType = new ArrayList<>();
+        for (Long id : ids) {
+            if (!existing.contains(id)) unknown.add(id);
+            else if (!students.contains(id)) wrongType.add(id);
+        }
+        throw new InvalidReferenceException("studentIds", unknown, wrongType);
+    }
+
+    @Transactional
     public void delete(Long id) {
         courseRepository.deleteById(id);
     }
@@ -0,0 +1,47 @@
+package com.example.personcrud.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A validated {@code fields=} selection: the requested subset of a resource's properties, kept in the
+ * resource's own property order so responses look the same however the parameter is written.
+ */
+public final class FieldSet {
+
+    private final List<String> names;
+
+    private FieldSet(List<String> names) {
+        this.names = names;
+    }
+
+    // a blank selection means every field
+    public static FieldSet parse(String fields, List<String> allowed) {
+        if (fields == null || fields.isBlank()) {
+            return new FieldSet(allowed);
+        }
+        Set<String> requested = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            if (!field.isBlank()) requested.add(field.trim());
+        }
+        List<String> unknown = requested.stream().filter(f -> !allowed.contains(f)).toList();
+        if (!unknown.isEmpty()) {
+            throw new InvalidFieldsException(unknown, allowed);
+        }
+        List<String> names = new ArrayList<>();
+        for (String field : allowed) {
+            if (requested.contains(field)) names.add(field);
+        }
+        return new FieldSet(names);
+    }
+
+    public List<String> names() {
+        return names;
+    }
+
+    public boolean contains(String field) {
+        return names.contains(field);
+    }
+}
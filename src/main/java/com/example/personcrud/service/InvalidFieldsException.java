@@ -0,0 +1,26 @@
+package com.example.personcrud.service;
+
+import java.util.List;
+
+/**
+ * Raised when {@code fields=} names a property the resource does not have.
+ */
+public class InvalidFieldsException extends RuntimeException {
+
+    private final List<String> unknownFields;
+    private final List<String> allowedFields;
+
+    public InvalidFieldsException(List<String> unknownFields, List<String> allowedFields) {
+        super("Unknown fields " + unknownFields + "; allowed are " + allowedFields);
+        this.unknownFields = List.copyOf(unknownFields);
+        this.allowedFields = List.copyOf(allowedFields);
+    }
+
+    public List<String> getUnknownFields() {
+        return unknownFields;
+    }
+
+    public List<String> getAllowedFields() {
+        return allowedFields;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.personcrud.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Raised when a request refers to persons that do not exist or have the wrong type,
+ * e.g. a teacher id used in {@code studentIds}. All offending ids of all fields are reported at once;
+ * the single-field accessors describe the first field, for callers that only ever send one.
+ */
+public class InvalidReferenceException extends RuntimeException {
+
+    public record Invalid(String field, List<Long> unknownIds, List<Long> wrongTypeIds) {
+
+        public Invalid(String field, Collection<Long> unknownIds, Collection<Long> wrongTypeIds) {
+            this(field, List.copyOf(unknownIds), List.copyOf(wrongTypeIds));
+        }
+    }
+
+    private final List<Invalid> errors;
+
+    public InvalidReferenceException(String field, Collection<Long> unknownIds, Collection<Long> wrongTypeIds) {
+        this(List.of(new Invalid(field, unknownIds, wrongTypeIds)));
+    }
+
+    public InvalidReferenceException(List<Invalid> errors) {
+        super(errors.stream().map(InvalidReferenceException::describe).collect(Collectors.joining("; ")));
+        this.errors = List.copyOf(errors);
+    }
+
+    private static String describe(Invalid invalid) {
+        StringBuilder sb = new StringBuilder("Invalid ").append(invalid.field()).append(':');
+        if (!invalid.unknownIds().isEmpty()) sb.append(" unknown ids ").append(invalid.unknownIds());
+        if (!invalid.unknownIds().isEmpty() && !invalid.wrongTypeIds().isEmpty()) sb.append(';');
+        if (!invalid.wrongTypeIds().isEmpty()) sb.append(" wrong person type for ids ").append(invalid.wrongTypeIds());
+        return sb.toString();
+    }
+
+    public List<Invalid> getErrors() {
+        return errors;
+    }
+
+    public String getField() {
+        return errors.get(0).field();
+    }
+
+    public List<Long> getUnknownIds() {
+        return errors.get(0).unknownIds();
+    }
+
+    public List<Long> getWrongTypeIds() {
+        return errors.get(0).wrongTypeIds();
+    }
+}
@@ -1,47 +1,185 @@
 package com.example.personcrud.service;
 
+import com.example.personcrud.dto.CursorPage;
+import com.example.personcrud.dto.PersonDto;
+import com.example.personcrud.mapper.PersonMapper;
 import com.example.personcrud.model.Person;
 import com.example.personcrud.repository.PersonRepository;
+import com.example.personcrud.search.PersonSearchIndex;
+import com.example.personcrud.search.SearchKeys;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class PersonService {
 
+    public static final List<String> FIELDS = List.of("id", "firstName", "lastName", "email", "personType", "version");
+
+    private static final Map<String, String> COLUMNS = Map.of(
+            "id", "p.id",
+            "firstName", "p.firstName",
+            "lastName", "p.lastName",
+            "email", "p.email",
+            "personType", "type(p)",
+            "version", "p.version");
+
     private final PersonRepository repository;
+    private final EntityManager entityManager;
+    private final PersonSearchIndex searchIndex;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int listingChunkSize;
 
-    public PersonService(PersonRepository repository) {
+    public PersonService(PersonRepository repository, EntityManager entityManager, PersonSearchIndex searchIndex,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${app.listings.chunk-size:1000}") int listingChunkSize) {
         this.repository = repository;
+        this.entityManager = entityManager;
+        this.searchIndex = searchIndex;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.listingChunkSize = listingChunkSize;
+    }
+
+    @Transactional(readOnly = true)
+    public List<PersonDto> findAll() {
+        return repository.findAll().stream().map(PersonMapper::toDto).collect(Collectors.toList());
+    }
+
+    // selects only the requested columns instead of loading entities and dropping properties on output
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findAllFields(FieldSet fields) {
+        String select = fields.names().stream().map(COLUMNS::get).collect(Collectors.joining(", "));
+        List<Tuple> rows = entityManager.createQuery("select " + select + " from Person p order by p.id", Tuple.class)
+                .getResultList();
+        return rows.stream().map(row -> {
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (int i = 0; i < fields.names().size(); i++) {
+                String field = fields.names().get(i);
+                Object value = row.get(i);
+                values.put(field, "personType".equals(field) ? PersonMapper.personType((Class<?>) value) : value);
+            }
+            return values;
+        }).collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<PersonDto> findPage(Long after, int limit) {
+        // fetch one extra row to know whether another page exists without a count query
+        PageRequest probe = PageRequest.of(0, limit + 1);
+        List<Person> rows = after == null
+                ? repository.findAllByOrderByIdAsc(probe)
+                : repository.findByIdGreaterThanOrderByIdAsc(after, probe);
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null).map(PersonMapper::toDto);
+        }
+        List<Person> items = rows.subList(0, limit);
+        return new CursorPage<>(items, items.get(limit - 1).getId()).map(PersonMapper::toDto);
+    }
+
+    // keyset chunks, each read in its own short transaction and handed out after it ends, so a slow client
+    // never holds a pooled connection; each chunk is consistent, the listing as a whole is not a snapshot
+    public void streamAll(Consumer<PersonDto> action) {
+        long after = 0;
+        while (true) {
+            long cursor = after;
+            List<PersonDto> chunk = readOnlyTransaction.execute(status -> repository
+                    .findChunk(cursor, PageRequest.of(0, listingChunkSize)).stream()
+                    .map(PersonMapper::toDto).collect(Collectors.toList()));
+            chunk.forEach(action);
+            if (chunk.size() < listingChunkSize) return;
+            after = chunk.get(chunk.size() - 1).getId();
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<PersonDto> findById(Long id) {
+        return repository.findById(id).map(PersonMapper::toDto);
+    }
+
+    @Transactional(readOnly = true)
+    public List<PersonDto> findAllById(Collection<Long> ids) {
+        return repository.findAllById(ids).stream().map(PersonMapper::toDto).collect(Collectors.toList());
     }
 
-    public List<Person> findAll() {
-        return repository.findAll();
+    @Transactional(readOnly = true)
+    public List<PersonDto> findByLastName(String lastName) {
+        return repository.findByLastNameKeyOrderById(SearchKeys.normalize(lastName)).stream()
+                .map(PersonMapper::toDto).collect(Collectors.toList());
     }
 
-    public Optional<Person> findById(Long id) {
-        return repository.findById(id);
+    // prefix match on first name, last name or email, served from the normalized column indexes
+    @Transactional(readOnly = true)
+    public List<PersonDto> searchByPrefix(String query, int limit, int offset) {
+        return repository.searchByPrefix(SearchKeys.prefixPattern(query), limit, offset).stream()
+                .map(PersonMapper::toDto).collect(Collectors.toList());
     }
 
-    public List<Person> findByLastName(String lastName) {
-        return repository.findByLastNameIgnoreCase(lastName);
+    // typo-tolerant match from the in-process trigram index, returned in ranking order
+    @Transactional(readOnly = true)
+    public List<PersonDto> searchFuzzy(String query, int limit, int offset) {
+        List<Long> ids = searchIndex.search(query, limit, offset);
+        Map<Long, Person> byId = repository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Person::getId, Function.identity()));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).map(PersonMapper::toDto).collect(Collectors.toList());
     }
 
-    public Person create(Person person) {
+    @Transactional
+    public PersonDto create(Person person) {
         person.setId(null);
-        return repository.save(person);
+        Person saved = repository.save(person);
+        return PersonMapper.toDto(saved);
+    }
+
+    // one transaction per chunk; inserts go out as JDBC batches of hibernate.jdbc.batch_size
+    @Transactional
+    public List<Person> createAll(List<Person> persons) {
+        for (Person person : persons) {
+            person.setId(null);
+            entityManager.persist(person);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return persons;
+    }
+
+    @Transactional(readOnly = true)
+    public String collectionETag() {
+        return repository.tableVersion().toETag("persons");
     }
 
-    public Optional<Person> update(Long id, Person person) {
+    // expectedVersion comes from If-Match; null means an unconditional update
+    @Transactional
+    public Optional<PersonDto> update(Long id, Person person, Long expectedVersion) {
         return repository.findById(id).map(existing -> {
+            if (expectedVersion != null && !expectedVersion.equals(existing.getVersion())) {
+                throw new VersionMismatchException(expectedVersion, existing.getVersion());
+            }
             existing.setFirstName(person.getFirstName());
             existing.setLastName(person.getLastName());
             existing.setEmail(person.getEmail());
-            return repository.save(existing);
+            // flushed here so the returned version is the one being committed
+            Person saved = repository.saveAndFlush(existing);
+            return PersonMapper.toDto(saved);
         });
     }
 
+    @Transactional
     public void delete(Long id) {
         repository.deleteById(id);
     }
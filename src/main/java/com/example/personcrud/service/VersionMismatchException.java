@@ -0,0 +1,18 @@
+package com.example.personcrud.service;
+
+/**
+ * Raised when a conditional update names a version (If-Match) that is no longer current.
+ */
+public class VersionMismatchException extends RuntimeException {
+
+    private final Long currentVersion;
+
+    public VersionMismatchException(Long expectedVersion, Long currentVersion) {
+        super("Expected version " + expectedVersion + " but current version is " + currentVersion);
+        this.currentVersion = currentVersion;
+    }
+
+    public Long getCurrentVersion() {
+        return currentVersion;
+    }
+}
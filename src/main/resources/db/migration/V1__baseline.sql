@@ -0,0 +1,38 @@
+-- schema as Hibernate generated it before migrations were introduced
+
+create sequence person_seq start with 1 increment by 50;
+create sequence course_seq start with 1 increment by 50;
+
+create table person (
+    id             bigint       not null,
+    person_type    varchar(31)  not null,
+    version        bigint,
+    first_name     varchar(255),
+    last_name      varchar(255),
+    email          varchar(255),
+    first_name_key varchar(255),
+    last_name_key  varchar(255),
+    email_key      varchar(255),
+    primary key (id)
+);
+
+create index idx_person_last_name_key on person (last_name_key);
+create index idx_person_first_name_key on person (first_name_key);
+create index idx_person_email_key on person (email_key);
+
+create table course (
+    id         bigint not null,
+    version    bigint,
+    name       varchar(255),
+    teacher_id bigint,
+    primary key (id),
+    constraint fk_course_teacher foreign key (teacher_id) references person (id)
+);
+
+create table course_students (
+    course_id  bigint not null,
+    student_id bigint not null,
+    primary key (course_id, student_id),
+    constraint fk_course_students_course foreign key (course_id) references course (id),
+    constraint fk_course_students_student foreign key (student_id) references person (id)
+);
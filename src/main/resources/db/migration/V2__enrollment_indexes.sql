@@ -0,0 +1,4 @@
+-- reverse lookups: courses of a student and courses of a teacher.
+-- The primary key of course_students leads with course_id and cannot serve them.
+create index idx_course_students_student on course_students (student_id, course_id);
+create index idx_course_teacher on course (teacher_id);
@@ -0,0 +1,22 @@
+-- change feed behind GET /api/changes: one row per changed entity holding its latest change, so the log
+-- is compacted as it is written. Deletes leave a tombstone row that is purged after app.changes.retention.
+create table change_log (
+    seq        bigint      not null,
+    entity     varchar(16) not null,
+    entity_id  bigint      not null,
+    operation  varchar(8)  not null,
+    changed_at timestamp   not null,
+    primary key (seq),
+    constraint uk_change_log_entity unique (entity, entity_id)
+);
+
+create index idx_change_log_operation on change_log (operation, seq);
+
+-- highest seq of a purged tombstone; readers further behind may have missed a delete and must reload
+create table change_log_horizon (
+    id  int    not null,
+    seq bigint not null,
+    primary key (id)
+);
+
+insert into change_log_horizon (id, seq) values (1, 0);
@@ -0,0 +1,10 @@
+-- the last change_log seq handed out. A writer locks this row for update and raises it in its own
+-- transaction, so concurrent writers, also from other instances, get distinct seqs and commit in seq order.
+create table change_log_counter (
+    id  int    not null,
+    seq bigint not null,
+    primary key (id)
+);
+
+insert into change_log_counter (id, seq)
+select 1, greatest((select coalesce(max(seq), 0) from change_log), (select seq from change_log_horizon where id = 1));
@@ -0,0 +1,155 @@
+package com.example.personcrud;
+
+import com.example.personcrud.admission.AdaptiveLimit;
+import com.example.personcrud.admission.AdmissionControlFilter;
+import com.example.personcrud.admission.AdmissionProperties;
+import com.example.personcrud.admission.AdmissionRoute;
+import com.example.personcrud.admission.ClientRateLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "app.admission.client-header=X-Client-Id",
+        // two listings per client, then one token every 10s
+        "app.admission.client-rate=0.1",
+        "app.admission.client-burst=20"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AdmissionControlTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void testClientOverItsBudgetIsThrottledWithRetryAfter() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(MockMvcRequestBuilders.get("/api/courses").header("X-Client-Id", "greedy"))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/courses").header("X-Client-Id", "greedy"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "100"))
+                .andExpect(jsonPath("$.status").value(429));
+
+        // other clients keep their own budget
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/courses").header("X-Client-Id", "polite"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testEveryApiEndpointIsAdmissionControlled() throws Exception {
+        // the audit replay is a listing: two per client, then throttled
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(MockMvcRequestBuilders.get("/api/audit").header("X-Client-Id", "auditor"))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/audit").header("X-Client-Id", "auditor"))
+                .andExpect(status().isTooManyRequests());
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/cache/stats").header("X-Client-Id", "auditor"))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    void testClientIsTheLastForwardedForEntry() throws Exception {
+        AdmissionControlFilter filter = new AdmissionControlFilter(List.of(),
+                new AdmissionRoute("default", new AdmissionProperties.Route()),
+                new ClientRateLimiter(0.001, 1, Duration.ofMinutes(1), 100), "X-Forwarded-For",
+                new ObjectMapper(), new SimpleMeterRegistry());
+
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(forwarded("10.0.0.1, 203.0.113.7"), first, (req, res) -> {
+        });
+        // a client cannot get a fresh bucket by making up the first entry
+        MockHttpServletResponse spoofed = new MockHttpServletResponse();
+        filter.doFilter(forwarded("10.0.0.2, 203.0.113.7"), spoofed, (req, res) -> {
+        });
+        MockHttpServletResponse other = new MockHttpServletResponse();
+        filter.doFilter(forwarded("10.0.0.1, 203.0.113.8"), other, (req, res) -> {
+        });
+
+        assertThat(first.getStatus()).isEqualTo(200);
+        assertThat(spoofed.getStatus()).isEqualTo(429);
+        assertThat(other.getStatus()).isEqualTo(200);
+    }
+
+    private static MockHttpServletRequest forwarded(String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/courses/1");
+        request.addHeader("X-Forwarded-For", forwardedFor);
+        return request;
+    }
+
+    @Test
+    void testRouteAtItsLimitShedsWhileOtherRoutesAreAdmitted() throws Exception {
+        AdmissionProperties.Route listing = new AdmissionProperties.Route();
+        listing.setPatterns(List.of("GET /api/courses"));
+        listing.setInitialLimit(1);
+        listing.setMaxLimit(1);
+        AdmissionControlFilter filter = new AdmissionControlFilter(List.of(new AdmissionRoute("listing", listing)),
+                new AdmissionRoute("default", new AdmissionProperties.Route()), null, "", new ObjectMapper(), new SimpleMeterRegistry());
+
+        MockHttpServletResponse shed = new MockHttpServletResponse();
+        MockHttpServletResponse cheap = new MockHttpServletResponse();
+        // the nested requests arrive while the outer listing still holds the route's only slot
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/courses"), new MockHttpServletResponse(), (req, res) -> {
+            filter.doFilter(new MockHttpServletRequest("GET", "/api/courses"), shed, (r, s) -> {
+            });
+            filter.doFilter(new MockHttpServletRequest("GET", "/api/courses/1"), cheap, (r, s) -> {
+            });
+        });
+
+        assertThat(shed.getStatus()).isEqualTo(503);
+        assertThat(shed.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(cheap.getStatus()).isEqualTo(200);
+
+        MockHttpServletResponse later = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/courses"), later, (r, s) -> {
+        });
+        assertThat(later.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void testLimitBacksOffWhenSlowAndGrowsWhenBusy() {
+        long target = TimeUnit.MILLISECONDS.toNanos(100);
+        AdaptiveLimit limit = new AdaptiveLimit(10, 2, 12, target, 0.5);
+
+        for (int i = 0; i < 10; i++) assertThat(limit.tryAcquire()).isEqualTo(i + 1);
+        assertThat(limit.tryAcquire()).isEqualTo(-1);
+
+        // a stall slowing every request in flight counts once
+        for (int i = 0; i < 10; i++) limit.release(10, 2 * target);
+        assertThat(limit.getLimit()).isEqualTo(5);
+        assertThat(limit.getInFlight()).isZero();
+
+        // fast responses grow the limit only while it is actually in use
+        for (int i = 0; i < 20; i++) limit.release(limit.tryAcquire(), Duration.ofMillis(1).toNanos());
+        assertThat(limit.getLimit()).isEqualTo(5);
+        for (int i = 0; i < 40; i++) {
+            limit.tryAcquire();
+            limit.release(5, Duration.ofMillis(1).toNanos());
+        }
+        assertThat(limit.getLimit()).isBetween(6, 12);
+        for (int i = 0; i < 1000; i++) {
+            limit.tryAcquire();
+            limit.release(12, Duration.ofMillis(1).toNanos());
+        }
+        assertThat(limit.getLimit()).isEqualTo(12);
+        assertThat(limit.getInFlight()).isZero();
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.personcrud;
+
+import com.example.personcrud.audit.AuditEvent;
+import com.example.personcrud.audit.AuditLog;
+import com.example.personcrud.audit.AuditProperties;
+import com.example.personcrud.dto.CourseDto;
+import com.example.personcrud.dto.PersonDto;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.util.unit.DataSize;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AuditLogTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AuditLog auditLog;
+
+    @Test
+    void testCommittedChangesAreReplayedInOrder() throws Exception {
+        long after = auditLog.lastSeq();
+
+        MvcResult post = mockMvc.perform(MockMvcRequestBuilders.post("/api/persons")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new PersonDto(null, "Audit", "Student", "audit.student@example.com", "STUDENT"))))
+                .andExpect(status().isCreated())
+                .andReturn();
+        PersonDto student = objectMapper.readValue(post.getResponse().getContentAsString(), PersonDto.class);
+
+        student.setLastName("Renamed");
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/persons/{id}", student.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(student)))
+                .andExpect(status().isOk());
+
+        MvcResult course = mockMvc.perform(MockMvcRequestBuilders.post("/api/courses")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CourseDto(null, "Audited", null, List.of()))))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Long courseId = objectMapper.readValue(course.getResponse().getContentAsString(), CourseDto.class).getId();
+
+        // the set-based enrollment path is recorded by the service
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/courses/{id}/students", courseId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(student.getId()))))
+                .andExpect(status().isOk());
+
+        // a rejected write rolls back and leaves nothing behind
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/courses")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CourseDto(null, "Rejected", null, List.of(student.getId() + 1000)))))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(MockMvcRequestBuilders.delete("/api/courses/{id}", courseId))
+                .andExpect(status().isNoContent());
+
+        List<JsonNode> events = awaitEvents(after, 5);
+        assertThat(events).extracting(e -> e.get("entity").asText() + " " + e.get("operation").asText()).containsExactly(
+                "Person CREATE", "Person UPDATE", "Course CREATE", "Course UPDATE", "Course DELETE");
+        assertThat(events.get(0).get("state").get("personType").asText()).isEqualTo("STUDENT");
+        assertThat(events.get(1).get("changed")).extracting(JsonNode::asText).contains("lastName");
+        assertThat(events.get(1).get("state").get("lastName").asText()).isEqualTo("Renamed");
+        assertThat(events.get(3).get("state").get("studentsAdded").get(0).asLong()).isEqualTo(student.getId());
+        for (int i = 0; i < events.size(); i++) {
+            assertThat(events.get(i).get("seq").asLong()).isEqualTo(after + 1 + i);
+        }
+    }
+
+    @Test
+    void testSegmentsRotateAndSurviveATornTail(@TempDir Path dir) throws Exception {
+        AuditProperties properties = new AuditProperties();
+        properties.setDir(dir.toString());
+        properties.setSegmentSize(DataSize.ofBytes(1024));
+        properties.setFsync(false);
+        // segments are rotated between batches
+        properties.setBatchSize(5);
+
+        AuditLog first = new AuditLog(properties, new ObjectMapper(), new SimpleMeterRegistry());
+        for (long id = 1; id <= 50; id++) {
+            first.capture(new AuditEvent("Person", id, AuditEvent.Operation.CREATE, 0L, Map.of("lastName", "Row" + id)));
+        }
+        // close drains the buffer to disk
+        first.close();
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(dir)) {
+            segments = files.filter(f -> f.toString().endsWith(".log")).sorted().toList();
+        }
+        assertThat(segments).hasSizeGreaterThan(1);
+
+        // a crash in the middle of an append leaves half a line
+        Files.writeString(segments.get(segments.size() - 1), "{\"seq\":51,\"enti", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        AuditLog second = new AuditLog(properties, new ObjectMapper(), new SimpleMeterRegistry());
+        assertThat(second.lastSeq()).isEqualTo(50);
+        second.capture(new AuditEvent("Person", 51L, AuditEvent.Operation.DELETE, 0L, Map.of()));
+        second.close();
+
+        List<AuditEvent> replayed = second.replay(0, 1000);
+        assertThat(replayed).hasSize(51);
+        assertThat(replayed).extracting(AuditEvent::getSeq).isSorted().startsWith(1L).endsWith(51L);
+        assertThat(second.replay(48, 2)).extracting(AuditEvent::getEntityId).containsExactly(49L, 50L);
+    }
+
+    @Test
+    void testDirectoryHasASingleWriter(@TempDir Path dir) throws Exception {
+        AuditProperties properties = new AuditProperties();
+        properties.setDir(dir.toString());
+
+        AuditLog first = new AuditLog(properties, new ObjectMapper(), new SimpleMeterRegistry());
+        assertThatThrownBy(() -> new AuditLog(properties, new ObjectMapper(), new SimpleMeterRegistry()))
+                .isInstanceOf(UncheckedIOException.class)
+                .hasRootCauseMessage("Audit directory " + dir.toAbsolutePath() + " is in use by another writer");
+        first.close();
+
+        // released on close, as after an orderly shutdown
+        new AuditLog(properties, new ObjectMapper(), new SimpleMeterRegistry()).close();
+    }
+
+    // the writer runs behind the commit, so poll the replay API until the events have landed
+    private List<JsonNode> awaitEvents(long after, int count) throws Exception {
+        List<JsonNode> events = new ArrayList<>();
+        for (int attempt = 0; attempt < 100 && events.size() < count; attempt++) {
+            if (attempt > 0) Thread.sleep(50);
+            MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/audit").param("after", Long.toString(after)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            events.clear();
+            objectMapper.readTree(result.getResponse().getContentAsString()).get("items").forEach(events::add);
+        }
+        return events;
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.personcrud;
+
+import com.example.personcrud.changes.ChangeLog;
+import com.example.personcrud.dto.Change;
+import com.example.personcrud.dto.ChangeBatch;
+import com.example.personcrud.dto.CourseDto;
+import com.example.personcrud.dto.PersonDto;
+import com.example.personcrud.model.Person;
+import com.example.personcrud.model.Student;
+import com.example.personcrud.repository.PersonRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        // tombstones expire at once; compaction only runs when a test calls it
+        "app.changes.retention=0s",
+        "app.changes.compaction-interval=0s"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ChangeFeedTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Test
+    void testFeedReturnsLatestChangePerEntitySinceCursor() throws Exception {
+        long since = cursor();
+
+        PersonDto teacher = create("/api/persons", new PersonDto(null, "Feed", "Teacher", "feed.teacher@example.com", "TEACHER"), PersonDto.class);
+        PersonDto student = create("/api/persons", new PersonDto(null, "Feed", "Student", "feed.student@example.com", "STUDENT"), PersonDto.class);
+        PersonDto leaver = create("/api/persons", new PersonDto(null, "Feed", "Leaver", "feed.leaver@example.com", "STUDENT"), PersonDto.class);
+        CourseDto course = create("/api/courses", new CourseDto(null, "Feeds 101", teacher.getId(), List.of()), CourseDto.class);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/courses/" + course.getId() + "/students")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(student.getId()))))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.delete("/api/persons/" + leaver.getId()))
+                .andExpect(status().isNoContent());
+
+        ChangeBatch batch = changes(since, 100);
+        assertThat(batch.getChanges()).extracting(c -> c.getEntity() + ":" + c.getId() + ":" + c.getOperation()).containsExactly(
+                "Person:" + teacher.getId() + ":CREATE",
+                "Person:" + student.getId() + ":CREATE",
+                // the enrollment replaced the course's CREATE entry
+                "Course:" + course.getId() + ":UPDATE",
+                "Person:" + leaver.getId() + ":DELETE");
+        @SuppressWarnings("unchecked")
+        Map<String, Object> courseData = (Map<String, Object>) batch.getChanges().get(2).getData();
+        assertThat(courseData.get("studentIds")).isEqualTo(List.of(student.getId().intValue()));
+        assertThat(batch.getChanges().get(3).getData()).isNull();
+        assertThat(batch.isMore()).isFalse();
+
+        // paging, and nothing new past the end
+        ChangeBatch first = changes(since, 2);
+        assertThat(first.getChanges()).hasSize(2);
+        assertThat(first.isMore()).isTrue();
+        assertThat(changes(first.getNext(), 100).getChanges()).hasSize(2);
+        ChangeBatch end = changes(batch.getNext(), 100);
+        assertThat(end.getChanges()).isEmpty();
+        assertThat(end.getNext()).isEqualTo(batch.getNext());
+    }
+
+    @Test
+    void testCursorBehindPurgedTombstonesMustReload() throws Exception {
+        long since = cursor();
+        PersonDto gone = create("/api/persons", new PersonDto(null, "Purged", "Person", "purged.person@example.com", "STUDENT"), PersonDto.class);
+        mockMvc.perform(MockMvcRequestBuilders.delete("/api/persons/" + gone.getId()))
+                .andExpect(status().isNoContent());
+        long afterDelete = cursor();
+
+        assertThat(changeLog.compact()).isGreaterThan(0);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/changes").param("since", Long.toString(since)))
+                .andExpect(status().isGone())
+                .andExpect(jsonPath("$.horizon").value(afterDelete));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/changes").param("since", Long.toString(afterDelete)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testStreamPushesCommittedChanges() throws Exception {
+        MvcResult stream = mockMvc.perform(MockMvcRequestBuilders.get("/api/changes/stream")
+                        .param("since", Long.toString(cursor())))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        PersonDto created = create("/api/persons", new PersonDto(null, "Live", "Update", "live.update@example.com", "STUDENT"), PersonDto.class);
+
+        MockHttpServletResponse response = stream.getResponse();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!response.getContentAsString().contains("\"id\":" + created.getId()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(response.getContentAsString())
+                .contains("event:change")
+                .contains("\"lastName\":\"Update\"");
+    }
+
+    @Test
+    void testStreamCatchesUpOnABacklogLargerThanItsOutbox() throws Exception {
+        long since = cursor();
+        List<Person> backlog = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) backlog.add(new Student("Backlog" + i, "Reader", "backlog" + i + ".reader@example.com"));
+        personRepository.saveAll(backlog);
+
+        MvcResult stream = mockMvc.perform(MockMvcRequestBuilders.get("/api/changes/stream")
+                        .param("since", Long.toString(since)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // the dispatcher queues at most two pages for the stream and resumes as they are sent
+        MockHttpServletResponse response = stream.getResponse();
+        String last = "id:" + (since + backlog.size()) + "\n";
+        long deadline = System.currentTimeMillis() + 20_000;
+        while (!response.getContentAsString().contains(last) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(response.getContentAsString().split("event:change", -1)).hasSize(backlog.size() + 1);
+
+        // the database is shared with other test contexts, whose listings must stay small
+        personRepository.deleteAll(backlog);
+    }
+
+    @Test
+    void testConcurrentWritersGetDistinctSeqsInCommitOrder() throws Exception {
+        long since = cursor();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<PersonDto>> created = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                PersonDto person = new PersonDto(null, "Seq" + i, "Writer", "seq" + i + ".writer@example.com", "STUDENT");
+                created.add(executor.submit(() -> create("/api/persons", person, PersonDto.class)));
+            }
+            for (Future<PersonDto> future : created) future.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        ChangeBatch batch = changes(since, 100);
+        assertThat(batch.getChanges()).extracting(Change::getSeq)
+                .containsExactlyElementsOf(LongStream.rangeClosed(since + 1, since + 40).boxed().toList());
+    }
+
+    private long cursor() throws Exception {
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/changes"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes").isEmpty())
+                .andReturn();
+        return objectMapper.readValue(result.getResponse().getContentAsString(), ChangeBatch.class).getNext();
+    }
+
+    private ChangeBatch changes(long since, int limit) throws Exception {
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/changes")
+                        .param("since", Long.toString(since))
+                        .param("limit", Integer.toString(limit)))
+                .andExpect(status().isOk())
+                .andReturn();
+        return objectMapper.readValue(result.getResponse().getContentAsString(), ChangeBatch.class);
+    }
+
+    private <T> T create(String path, Object body, Class<T> type) throws Exception {
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post(path)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(body)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return objectMapper.readValue(result.getResponse().getContentAsString(), type);
+    }
+}
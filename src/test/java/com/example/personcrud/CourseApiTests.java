@@ -6,23 +6,30 @@ import com.example.personcrud.model.Teacher;
 import com.example.personcrud.repository.CourseRepository;
 import com.example.personcrud.repository.PersonRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.sql.SQLException;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
 @AutoConfigureMockMvc
+@ActiveProfiles("test")
 class CourseApiTests {
 
     @Autowired
@@ -37,12 +44,35 @@ class CourseApiTests {
     @Autowired
     private CourseRepository courseRepository;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @BeforeEach
     void cleanup() {
         courseRepository.deleteAll();
         personRepository.deleteAll();
     }
 
+    @Test
+    void testRolledBackDeleteKeepsPersonInFuzzySearch() throws Exception {
+        Teacher teacher = (Teacher) personRepository.save(new Teacher("Ursula", "Quillfeather", "u.quill@example.com"));
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/courses")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CourseDto(null, "Calligraphy", teacher.getId(), List.of()))))
+                .andExpect(status().isCreated());
+
+        // the course still references the teacher, so the delete fails at commit and rolls back
+        Long teacherId = teacher.getId();
+        assertThatThrownBy(() -> mockMvc.perform(MockMvcRequestBuilders.delete("/api/persons/{id}", teacherId)))
+                .hasRootCauseInstanceOf(SQLException.class);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons/search")
+                        .param("q", "Quilfeather")
+                        .param("fuzzy", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(teacher.getId().intValue()));
+    }
+
     @Test
     void testCreateGetUpdateDeleteCourse() throws Exception {
         // create teacher and students directly
@@ -111,4 +141,282 @@ class CourseApiTests {
                         .content(objectMapper.writeValueAsString(invalid)))
                 .andExpect(status().isBadRequest());
     }
+
+    @Test
+    void testListFoldsStudentsPerCourse() throws Exception {
+        Teacher teacher = personRepository.save(new Teacher("List", "Teacher", "list.teacher@example.com"));
+        Student s1 = (Student) personRepository.save(new Student("List1", "One", "list1@example.com"));
+        Student s2 = (Student) personRepository.save(new Student("List2", "Two", "list2@example.com"));
+
+        for (CourseDto dto : List.of(
+                new CourseDto(null, "Both", teacher.getId(), List.of(s1.getId(), s2.getId())),
+                new CourseDto(null, "Empty", null, List.of()))) {
+            mockMvc.perform(MockMvcRequestBuilders.post("/api/courses")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(dto)))
+                    .andExpect(status().isCreated());
+        }
+
+        long statements = sqlStatements("GET", "/api/courses");
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/courses"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andReturn();
+        // a version probe, then per chunk of courses an id query and one folded row query, however many students
+        assertThat(sqlStatements("GET", "/api/courses") - statements).isLessThanOrEqualTo(3);
+
+        CourseDto[] courses = objectMapper.readValue(result.getResponse().getContentAsString(), CourseDto[].class);
+        assertThat(courses[0].getName()).isEqualTo("Both");
+        assertThat(courses[0].getTeacherId()).isEqualTo(teacher.getId());
+        assertThat(courses[0].getStudentIds()).containsExactly(s1.getId(), s2.getId());
+        assertThat(courses[1].getName()).isEqualTo("Empty");
+        assertThat(courses[1].getTeacherId()).isNull();
+        assertThat(courses[1].getStudentIds()).isEmpty();
+    }
+
+    @Test
+    void testStreamedListNegotiatesEncoding() throws Exception {
+        Student student = (Student) personRepository.save(new Student("Cbor", "Student", "cbor.student@example.com"));
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/courses")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CourseDto(null, "Binary", null, List.of(student.getId())))))
+                .andExpect(status().isCreated());
+
+        MvcResult cbor = mockMvc.perform(MockMvcRequestBuilders.get("/api/courses").accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(content().contentTypeCompatibleWith("application/cbor"))
+                .andReturn();
+        CourseDto[] courses = new ObjectMapper(new CBORFactory()).readValue(cbor.getResponse().getContentAsByteArray(), CourseDto[].class);
+        assertThat(courses).hasSize(1);
+        assertThat(courses[0].getStudentIds()).containsExactly(student.getId());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/courses").accept(MediaType.APPLICATION_XML))
+                .andExpect(status().isNotAcceptable());
+    }
+
+    @Test
+    void testListCoursesWithSparseFields() throws Exception {
+        Teacher teacher = personRepository.save(new Teacher("Field", "Teacher", "field.teacher@example.com"));
+        Student s1 = (Student) personRepository.save(new Student("Field1", "One", "field1@example.com"));
+        Student s2 = (Student) personRepository.save(new Student("Field2", "Two", "field2@example.com"));
+        for (CourseDto dto : List.of(
+                new CourseDto(null, "Both", teacher.getId(), List.of(s1.getId(), s2.getId())),
+                new CourseDto(null, "Empty", null, List.of()))) {
+            mockMvc.perform(MockMvcRequestBuilders.post("/api/courses")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(dto)))
+                    .andExpect(status().isCreated());
+        }
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/courses").param("fields", "id,name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("Both"))
+                .andExpect(jsonPath("$[0].studentIds").doesNotExist())
+                .andExpect(jsonPath("$[0].teacherId").doesNotExist());
+
+        // studentIds alone still folds one row per enrollment into one entry per course
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/courses").param("fields", "studentIds"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").doesNotExist())
+                .andExpect(jsonPath("$[0].studentIds.length()").value(2))
+                .andExpect(jsonPath("$[1].studentIds").isEmpty());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/courses").param("fields", "name,students"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.unknownFields[0]").value("students"));
+    }
+
+    @Test
+    void testCreateCourseRejectsUnknownAndNonStudentIds() throws Exception {
+        Teacher teacher = personRepository.save(new Teacher("Ref", "Teacher", "ref.teacher@example.com"));
+        Student student = (Student) personRepository.save(new Student("Ref", "Student", "ref.student@example.com"));
+        long unknownId = student.getId() + 1000;
+
+        CourseDto dto = new CourseDto(null, "Refs", teacher.getId(), List.of(student.getId(), teacher.getId(), unknownId));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/courses")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.field").value("studentIds"))
+                .andExpect(jsonPath("$.unknownIds[0]").value((int) unknownId))
+                .andExpect(jsonPath("$.wrongTypeIds[0]").value(teacher.getId().intValue()));
+
+        // a bad teacher and bad students are reported together
+        CourseDto both = new CourseDto(null, "Refs", student.getId(), List.of(unknownId));
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/courses")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(both)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors.length()").value(2))
+                .andExpect(jsonPath("$.errors[0].field").value("teacherId"))
+                .andExpect(jsonPath("$.errors[0].wrongTypeIds[0]").value(student.getId().intValue()))
+                .andExpect(jsonPath("$.errors[1].field").value("studentIds"))
+                .andExpect(jsonPath("$.errors[1].unknownIds[0]").value((int) unknownId));
+
+        assertThat(courseRepository.count()).isZero();
+    }
+
+    @Test
+    void testAddAndRemoveStudents() throws Exception {
+        Teacher teacher = personRepository.save(new Teacher("Enroll", "Teacher", "enroll.teacher@example.com"));
+        Student s1 = (Student) personRepository.save(new Student("Enroll1", "One", "enroll1@example.com"));
+        Student s2 = (Student) personRepository.save(new Student("Enroll2", "Two", "enroll2@example.com"));
+
+        MvcResult post = mockMvc.perform(MockMvcRequestBuilders.post("/api/courses")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CourseDto(null, "Enrollment", teacher.getId(), List.of(s1.getId())))))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Long courseId = objectMapper.readValue(post.getResponse().getContentAsString(), CourseDto.class).getId();
+
+        // adding an already enrolled student is a no-op
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/courses/{id}/students", courseId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(s1.getId(), s2.getId()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.studentIds.length()").value(2));
+
+        // enrollment changes bump the course version, so cached listings are revalidated
+        String listEtag = mockMvc.perform(MockMvcRequestBuilders.get("/api/courses"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/courses").header("If-None-Match", listEtag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(MockMvcRequestBuilders.delete("/api/courses/{id}/students", courseId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(s1.getId()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.studentIds.length()").value(1))
+                .andExpect(jsonPath("$.studentIds[0]").value(s2.getId().intValue()));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/courses").header("If-None-Match", listEtag))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/courses/{id}/students", courseId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(teacher.getId()))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.wrongTypeIds[0]").value(teacher.getId().intValue()));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/courses/{id}/students", courseId + 1000)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(s1.getId()))))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testAggregatesAreGroupedInSql() throws Exception {
+        Teacher busy = personRepository.save(new Teacher("Busy", "Teacher", "busy.teacher@example.com"));
+        Teacher idle = personRepository.save(new Teacher("Idle", "Teacher", "idle.teacher@example.com"));
+        Student s1 = (Student) personRepository.save(new Student("Agg1", "One", "agg1@example.com"));
+        Student s2 = (Student) personRepository.save(new Student("Agg2", "Two", "agg2@example.com"));
+        Student s3 = (Student) personRepository.save(new Student("Agg3", "Three", "agg3@example.com"));
+
+        for (CourseDto dto : List.of(
+                new CourseDto(null, "Large", busy.getId(), List.of(s1.getId(), s2.getId(), s3.getId())),
+                new CourseDto(null, "Small", busy.getId(), List.of(s1.getId())),
+                new CourseDto(null, "Unstaffed", null, List.of()))) {
+            mockMvc.perform(MockMvcRequestBuilders.post("/api/courses")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(dto)))
+                    .andExpect(status().isCreated());
+        }
+
+        long statements = sqlStatements("GET", "/api/courses/stats");
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/courses/stats"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].name").value("Large"))
+                .andExpect(jsonPath("$[0].studentCount").value(3))
+                .andExpect(jsonPath("$[1].studentCount").value(1))
+                .andExpect(jsonPath("$[2].teacherId").doesNotExist())
+                .andExpect(jsonPath("$[2].studentCount").value(0));
+        assertThat(sqlStatements("GET", "/api/courses/stats") - statements).isLessThanOrEqualTo(2);
+
+        // s1 is counted once per course for enrollments but once overall for students
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/courses/teacher-load"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].teacherId").value(busy.getId().intValue()))
+                .andExpect(jsonPath("$[0].courseCount").value(2))
+                .andExpect(jsonPath("$[0].enrollmentCount").value(4))
+                .andExpect(jsonPath("$[0].studentCount").value(3))
+                .andExpect(jsonPath("$[1].teacherId").value(idle.getId().intValue()))
+                .andExpect(jsonPath("$[1].courseCount").value(0));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons/{id}/courses", s1.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("Large"))
+                .andExpect(jsonPath("$[0].studentCount").value(3))
+                .andExpect(jsonPath("$[1].name").value("Small"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons/{id}/courses", busy.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons/{id}/courses", s3.getId() + 1000))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testStudentCoursesArePagedAndCached() throws Exception {
+        Teacher teacher = personRepository.save(new Teacher("Page", "Teacher", "page.teacher@example.com"));
+        Student student = (Student) personRepository.save(new Student("Page", "Student", "page.student@example.com"));
+        Student other = (Student) personRepository.save(new Student("Other", "Student", "other.student@example.com"));
+        for (String name : List.of("First", "Second", "Third")) {
+            mockMvc.perform(MockMvcRequestBuilders.post("/api/courses")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(new CourseDto(null, name, teacher.getId(), List.of(student.getId())))))
+                    .andExpect(status().isCreated());
+        }
+
+        String uri = "/api/persons/{id}/courses";
+        MvcResult first = mockMvc.perform(MockMvcRequestBuilders.get(uri, student.getId()).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.items[0].name").value("First"))
+                .andExpect(jsonPath("$.next").isNumber())
+                .andReturn();
+        long next = objectMapper.readTree(first.getResponse().getContentAsString()).get("next").asLong();
+        mockMvc.perform(MockMvcRequestBuilders.get(uri, student.getId()).param("limit", "2").param("after", Long.toString(next)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].name").value("Third"))
+                .andExpect(jsonPath("$.next").doesNotExist());
+        // a cursor without a limit is still a page, not the unpaged list
+        mockMvc.perform(MockMvcRequestBuilders.get(uri, student.getId()).param("after", Long.toString(next)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].name").value("Third"));
+
+        // a repeated page is served from the person and query caches
+        long statements = sqlStatements("GET", uri);
+        mockMvc.perform(MockMvcRequestBuilders.get(uri, student.getId()).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2));
+        assertThat(sqlStatements("GET", uri) - statements).isZero();
+
+        // enrollment changes invalidate the cached pages
+        Long firstCourse = objectMapper.readTree(first.getResponse().getContentAsString()).get("items").get(0).get("courseId").asLong();
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/courses/{id}/students", firstCourse)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(other.getId()))))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.get(uri, student.getId()).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].studentCount").value(2));
+    }
+
+    // SQL statements run so far by requests to one route, from the per-request SQL metric
+    private long sqlStatements(String method, String uri) {
+        DistributionSummary summary = meterRegistry.find("http.server.requests.sql").tags("method", method, "uri", uri).summary();
+        return summary == null ? 0 : (long) summary.totalAmount();
+    }
 }
@@ -0,0 +1,269 @@
+package com.example.personcrud;
+
+import com.example.personcrud.dto.CourseDto;
+import com.example.personcrud.dto.CourseStats;
+import com.example.personcrud.dto.PersonDto;
+import com.example.personcrud.dto.StudentSet;
+import com.example.personcrud.enrollment.EnrollmentModel;
+import com.example.personcrud.enrollment.EnrollmentProperties;
+import com.example.personcrud.model.Student;
+import com.example.personcrud.repository.CourseRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// a tiny overlay limit, so the writes below also repack the arrays several times
+@SpringBootTest(properties = "app.enrollment.max-overlay-rows=3")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class EnrollmentModelTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EnrollmentModel enrollmentModel;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EnrollmentProperties enrollmentProperties;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void testCourseReadsAreServedWithoutSql() throws Exception {
+        assertThat(enrollmentModel.isReady()).isTrue();
+        PersonDto teacher = create("/api/persons", new PersonDto(null, "Model", "Teacher", "model.teacher@example.com", "TEACHER"), PersonDto.class);
+        PersonDto student = create("/api/persons", new PersonDto(null, "Model", "Student", "model.student@example.com", "STUDENT"), PersonDto.class);
+        CourseDto course = create("/api/courses", new CourseDto(null, "Arrays 101", teacher.getId(), List.of()), CourseDto.class);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/courses/{id}/students", course.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(student.getId()))))
+                .andExpect(status().isOk());
+
+        long statements = sqlStatements("/api/courses/{id}") + sqlStatements("/api/persons/{id}/courses");
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/courses/{id}", course.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""))
+                .andExpect(jsonPath("$.teacherId").value(teacher.getId().intValue()))
+                .andExpect(jsonPath("$.studentIds[0]").value(student.getId().intValue()));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons/{id}/courses", student.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].courseId").value(course.getId().intValue()))
+                .andExpect(jsonPath("$[0].studentCount").value(1));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons/{id}/courses", teacher.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Arrays 101"));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/courses/{id}", course.getId() + 1000))
+                .andExpect(status().isNotFound());
+        assertThat(sqlStatements("/api/courses/{id}") + sqlStatements("/api/persons/{id}/courses") - statements).isZero();
+    }
+
+    @Test
+    void testModelMatchesDatabaseAfterRandomWrites() throws Exception {
+        Random random = new Random(7);
+        List<Long> teachers = new ArrayList<>();
+        List<Long> students = new ArrayList<>();
+        List<Long> courses = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            teachers.add(create("/api/persons", new PersonDto(null, "T" + i, "Random", "t" + i + ".random@example.com", "TEACHER"), PersonDto.class).getId());
+        }
+        for (int i = 0; i < 8; i++) {
+            students.add(create("/api/persons", new PersonDto(null, "S" + i, "Random", "s" + i + ".random@example.com", "STUDENT"), PersonDto.class).getId());
+        }
+
+        for (int i = 0; i < 60; i++) {
+            int action = courses.isEmpty() ? 0 : random.nextInt(5);
+            Long course = courses.isEmpty() ? null : courses.get(random.nextInt(courses.size()));
+            List<Long> some = students.stream().filter(s -> random.nextInt(3) == 0).toList();
+            Long teacher = random.nextInt(4) == 0 ? null : teachers.get(random.nextInt(teachers.size()));
+            switch (action) {
+                case 0 -> courses.add(create("/api/courses", new CourseDto(null, "Course " + i, teacher, some), CourseDto.class).getId());
+                case 1 -> mockMvc.perform(MockMvcRequestBuilders.post("/api/courses/{id}/students", course)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(some))).andExpect(status().isOk());
+                case 2 -> mockMvc.perform(MockMvcRequestBuilders.delete("/api/courses/{id}/students", course)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(some))).andExpect(status().isOk());
+                case 3 -> mockMvc.perform(MockMvcRequestBuilders.put("/api/courses/{id}", course)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CourseDto(null, "Renamed " + i, teacher, some))))
+                        .andExpect(status().isOk());
+                default -> {
+                    mockMvc.perform(MockMvcRequestBuilders.delete("/api/courses/{id}", course)).andExpect(status().isNoContent());
+                    courses.remove(course);
+                }
+            }
+        }
+
+        for (Long course : courses) {
+            Map<String, Object> row = jdbcTemplate.queryForMap("select name, version, teacher_id from course where id = ?", course);
+            List<Long> roster = jdbcTemplate.queryForList(
+                    "select student_id from course_students where course_id = ? order by student_id", Long.class, course);
+            CourseDto dto = enrollmentModel.view().orElseThrow().course(course).orElseThrow();
+            assertThat(dto.getName()).isEqualTo(row.get("NAME"));
+            assertThat(dto.getVersion()).isEqualTo(((Number) row.get("VERSION")).longValue());
+            assertThat(dto.getTeacherId()).isEqualTo(row.get("TEACHER_ID") == null ? null : ((Number) row.get("TEACHER_ID")).longValue());
+            assertThat(dto.getStudentIds()).isEqualTo(roster);
+        }
+        for (Long student : students) {
+            List<Long> enrolled = jdbcTemplate.queryForList(
+                    "select course_id from course_students where student_id = ? order by course_id", Long.class, student);
+            assertThat(enrollmentModel.view().orElseThrow().coursesOf(student, 0, Integer.MAX_VALUE).orElseThrow())
+                    .extracting(CourseStats::getCourseId).isEqualTo(enrolled);
+        }
+        for (Long teacher : teachers) {
+            List<Long> taught = jdbcTemplate.queryForList(
+                    "select id from course where teacher_id = ? order by id", Long.class, teacher);
+            assertThat(enrollmentModel.view().orElseThrow().coursesOf(teacher, 0, Integer.MAX_VALUE).orElseThrow())
+                    .extracting(CourseStats::getCourseId).isEqualTo(taught);
+            List<Long> taughtStudents = jdbcTemplate.queryForList("select distinct cs.student_id from course_students cs"
+                    + " join course c on c.id = cs.course_id where c.teacher_id = ? order by cs.student_id", Long.class, teacher);
+            assertThat(enrollmentModel.view().orElseThrow().students("teacher:" + teacher, null, Integer.MAX_VALUE).getItems())
+                    .containsExactlyInAnyOrderElementsOf(taughtStudents);
+        }
+        // the stats ETag the model serves is the one the table gives for the same state
+        assertThat(enrollmentModel.view().orElseThrow().stats().version().toETag("courses"))
+                .isEqualTo(courseRepository.tableVersion().toETag("courses"));
+        List<Long> unenrolled = students.stream()
+                .filter(s -> jdbcTemplate.queryForObject("select count(*) from course_students where student_id = ?", Long.class, s) == 0)
+                .toList();
+        assertThat(enrollmentModel.view().orElseThrow().students("students ANDNOT enrolled", null, Integer.MAX_VALUE).getItems())
+                .filteredOn(students::contains).containsExactlyInAnyOrderElementsOf(unenrolled);
+    }
+
+    @Test
+    void testSetQueriesCountAndPage() throws Exception {
+        Long teacher = create("/api/persons", new PersonDto(null, "Set", "Teacher", "set.teacher@example.com", "TEACHER"), PersonDto.class).getId();
+        List<Long> students = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            students.add(create("/api/persons", new PersonDto(null, "Set" + i, "Student", "set" + i + ".student@example.com", "STUDENT"), PersonDto.class).getId());
+        }
+        Long algebra = create("/api/courses", new CourseDto(null, "Algebra", teacher, students.subList(0, 4)), CourseDto.class).getId();
+        Long geometry = create("/api/courses", new CourseDto(null, "Geometry", null, students.subList(2, 5)), CourseDto.class).getId();
+
+        assertThat(query("course:" + algebra + " AND course:" + geometry, null, 10).getItems())
+                .containsExactly(students.get(2), students.get(3));
+        assertThat(query("course:" + algebra + " and not course:" + geometry, null, 10).getItems())
+                .containsExactly(students.get(0), students.get(1));
+        assertThat(query("(course:" + geometry + " ANDNOT teacher:" + teacher + ") OR course:" + algebra, null, 0).getCount())
+                .isEqualTo(5);
+
+        StudentSet first = query("course:" + algebra + " OR course:" + geometry, null, 2);
+        assertThat(first.getCount()).isEqualTo(5);
+        assertThat(first.getItems()).containsExactly(students.get(0), students.get(1));
+        StudentSet second = query("course:" + algebra + " OR course:" + geometry, first.getNext(), 2);
+        assertThat(second.getItems()).containsExactly(students.get(2), students.get(3));
+        StudentSet last = query("course:" + algebra + " OR course:" + geometry, second.getNext(), 2);
+        assertThat(last.getItems()).containsExactly(students.get(4));
+        assertThat(last.getNext()).isNull();
+
+        // a write is visible to the next query
+        mockMvc.perform(MockMvcRequestBuilders.delete("/api/courses/{id}/students", algebra)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(students.get(0)))))
+                .andExpect(status().isOk());
+        assertThat(query("teacher:" + teacher, null, 10).getItems())
+                .containsExactly(students.get(1), students.get(2), students.get(3));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/enrollments/students").param("q", "course:" + algebra + " AND"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/enrollments/students").param("q", "course:" + (geometry + 1000)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value("Unknown course " + (geometry + 1000)));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/enrollments/students").param("q", "teacher:" + students.get(0)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testWritesCommittedAroundTheInitialLoadAreApplied() {
+        // a model of its own, loading in a separate transaction so the scan cannot see a write still open
+        TransactionTemplate separate = new TransactionTemplate(transactionManager);
+        separate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        EnrollmentModel model = new EnrollmentModel(enrollmentProperties, jdbcTemplate, separate);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        // committed before the load: held back and applied again over the scan that saw it
+        Long before = transaction.execute(status -> save(model, new Student("Early", "Student", "early.student@example.com")));
+        // committed after the scan, having been written before it started
+        Long during = transaction.execute(status -> {
+            Long id = save(model, new Student("Loading", "Student", "loading.student@example.com"));
+            model.load();
+            assertThat(model.view().orElseThrow().students("students", null, Integer.MAX_VALUE).getItems()).doesNotContain(id);
+            return id;
+        });
+
+        assertThat(model.view().orElseThrow().students("students", null, Integer.MAX_VALUE).getItems())
+                .contains(before, during);
+    }
+
+    private Long save(EnrollmentModel model, Student student) {
+        entityManager.persist(student);
+        entityManager.flush();
+        model.personSaved(entityManager.unwrap(SessionImplementor.class), student);
+        return student.getId();
+    }
+
+    private StudentSet query(String q, Long after, int limit) throws Exception {
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get("/api/enrollments/students")
+                .param("q", q)
+                .param("limit", String.valueOf(limit));
+        if (after != null) request.param("after", after.toString());
+        MvcResult result = mockMvc.perform(request).andExpect(status().isOk()).andReturn();
+        return objectMapper.readValue(result.getResponse().getContentAsString(), StudentSet.class);
+    }
+
+    // SQL statements run so far by GET requests to one route, from the per-request SQL metric
+    private long sqlStatements(String uri) {
+        DistributionSummary summary = meterRegistry.find("http.server.requests.sql").tags("method", "GET", "uri", uri).summary();
+        return summary == null ? 0 : (long) summary.totalAmount();
+    }
+
+    private <T> T create(String path, Object body, Class<T> type) throws Exception {
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post(path)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(body)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return objectMapper.readValue(result.getResponse().getContentAsString(), type);
+    }
+}
@@ -1,21 +1,31 @@
 package com.example.personcrud;
 
 import com.example.personcrud.dto.PersonDto;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
 @AutoConfigureMockMvc
+@ActiveProfiles("test")
 class PersonCrudApplicationTests {
 
     @Autowired
@@ -24,6 +34,9 @@ class PersonCrudApplicationTests {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Test
     void testCreatePerson() throws Exception {
         PersonDto dto = new PersonDto(null, "Alice", "Walker", "alice.walker@example.com");
@@ -122,6 +135,46 @@ class PersonCrudApplicationTests {
                 .andExpect(jsonPath("$.[0]").exists());
     }
 
+    @Test
+    void testListPersonsWithSparseFields() throws Exception {
+        PersonDto dto = new PersonDto(null, "Sparse", "Teacher", "sparse.teacher@example.com", "TEACHER");
+        MvcResult post = mockMvc.perform(MockMvcRequestBuilders.post("/api/persons")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        long id = objectMapper.readValue(post.getResponse().getContentAsString(), PersonDto.class).getId();
+
+        MvcResult sparse = mockMvc.perform(MockMvcRequestBuilders.get("/api/persons").param("fields", "personType,lastName,id"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn();
+        JsonNode row = find(objectMapper.readTree(sparse.getResponse().getContentAsString()), id);
+        // properties come in resource order, not request order
+        assertThat(row.fieldNames()).toIterable().containsExactly("id", "lastName", "personType");
+        assertThat(row.get("personType").asText()).isEqualTo("TEACHER");
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons").param("fields", "id,password"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.unknownFields[0]").value("password"));
+
+        // binary encoding through content negotiation
+        MvcResult smile = mockMvc.perform(MockMvcRequestBuilders.get("/api/persons").param("fields", "id,lastName")
+                        .accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-jackson-smile"))
+                .andReturn();
+        JsonNode decoded = new ObjectMapper(new SmileFactory()).readTree(smile.getResponse().getContentAsByteArray());
+        assertThat(find(decoded, id).get("lastName").asText()).isEqualTo("Teacher");
+    }
+
+    private static JsonNode find(JsonNode array, long id) {
+        for (JsonNode node : array) {
+            if (node.get("id").asLong() == id) return node;
+        }
+        throw new AssertionError("no row with id " + id);
+    }
+
     @Test
     void testDeletePerson() throws Exception {
         PersonDto dto = new PersonDto(null, "Grace", "Hopper", "grace.hopper@example.com");
@@ -140,4 +193,283 @@ class PersonCrudApplicationTests {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void testPagePersonsWithCursor() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            PersonDto dto = new PersonDto(null, "Page" + i, "Cursor", "page" + i + "@example.com");
+            mockMvc.perform(MockMvcRequestBuilders.post("/api/persons")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(dto)))
+                    .andExpect(status().isCreated());
+        }
+
+        MvcResult first = mockMvc.perform(MockMvcRequestBuilders.get("/api/persons").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.next").isNumber())
+                .andReturn();
+
+        JsonNode page = objectMapper.readTree(first.getResponse().getContentAsString());
+        long next = page.get("next").asLong();
+        assertThat(page.get("items").get(1).get("id").asLong()).isEqualTo(next);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons")
+                        .param("limit", "2")
+                        .param("after", String.valueOf(next)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(org.hamcrest.Matchers.greaterThan((int) next)));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons")
+                        .param("limit", "1000")
+                        .param("after", String.valueOf(next)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.next").doesNotExist());
+
+        // a cursor alone is a page of the default size, not the unpaged listing
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons").param("after", String.valueOf(next)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(org.hamcrest.Matchers.greaterThan((int) next)));
+    }
+
+    @Test
+    void testStreamPersonsAsNdjson() throws Exception {
+        PersonDto dto = new PersonDto(null, "Nina", "Simone", "nina.simone@example.com");
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/persons")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isCreated());
+
+        MvcResult started = mockMvc.perform(MockMvcRequestBuilders.get("/api/persons")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertThat(lines).isNotEmpty();
+        for (String line : lines) {
+            assertThat(objectMapper.readValue(line, PersonDto.class).getId()).isNotNull();
+        }
+        assertThat(result.getResponse().getContentAsString()).contains("nina.simone@example.com");
+    }
+
+    @Test
+    void testBulkImportJsonArrayReportsRowErrors() throws Exception {
+        List<PersonDto> rows = List.of(
+                new PersonDto(null, "Bulk", "One", "bulk.one@example.com", "STUDENT"),
+                new PersonDto(null, "", "Two", "not-an-email", "STUDENT"),
+                new PersonDto(null, "Bulk", "Three", "bulk.three@example.com", "TEACHER"));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/persons/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(rows)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(3))
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors[0].index").value(1))
+                .andExpect(jsonPath("$.rowsPerSecond").isNumber());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons/search")
+                        .param("lastName", "Three"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("[0].personType").value("TEACHER"));
+    }
+
+    @Test
+    void testBulkImportNdjson() throws Exception {
+        String body = objectMapper.writeValueAsString(new PersonDto(null, "Nd", "Json", "nd.json1@example.com", "STUDENT"))
+                + "\n{\"firstName\": \"Nd\", \"lastName\": \"Json\", \"email\": \"nd.json2@example.com\", \"id\": \"x\"}"
+                + "\n" + objectMapper.writeValueAsString(new PersonDto(null, "Nd", "Json", "nd.json3@example.com")) + "\n";
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/persons/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(3))
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.errors[0].index").value(1));
+    }
+
+    @Test
+    void testPrefixAndFuzzySearch() throws Exception {
+        PersonDto dto = new PersonDto(null, "Octavia", "Butlerova", "kindred.author@example.com");
+        MvcResult post = mockMvc.perform(MockMvcRequestBuilders.post("/api/persons")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        PersonDto created = objectMapper.readValue(post.getResponse().getContentAsString(), PersonDto.class);
+
+        // prefix on last name, first name and email, case-insensitive
+        for (String q : new String[]{"butl", "OCTAV", "kindred"}) {
+            mockMvc.perform(MockMvcRequestBuilders.get("/api/persons/search").param("q", q))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.items[0].id").value(created.getId().intValue()));
+        }
+
+        // search pages carry an offset, under a name of its own
+        PersonDto twin = new PersonDto(null, "Octavia", "Butlerson", "kindred.twin@example.com");
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/persons")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(twin)))
+                .andExpect(status().isCreated());
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons/search").param("q", "butl").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextOffset").value(1))
+                .andExpect(jsonPath("$.next").doesNotExist());
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons/search").param("q", "butl").param("limit", "1").param("offset", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.nextOffset").doesNotExist());
+
+        // a misspelling still finds the person through the trigram index
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons/search")
+                        .param("q", "Butlerowa")
+                        .param("fuzzy", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(created.getId().intValue()));
+
+        // updates are reflected in both search paths
+        created.setLastName("Estrava");
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/persons/{id}", created.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(created)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons/search").param("q", "butlerov"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(0));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons/search")
+                        .param("q", "estrawa")
+                        .param("fuzzy", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(created.getId().intValue()));
+    }
+
+    @Test
+    void testRepeatedGetIsServedFromSecondLevelCache() throws Exception {
+        PersonDto dto = new PersonDto(null, "Cache", "Hit", "cache.hit@example.com");
+        MvcResult post = mockMvc.perform(MockMvcRequestBuilders.post("/api/persons")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        PersonDto created = objectMapper.readValue(post.getResponse().getContentAsString(), PersonDto.class);
+
+        long before = personRegionHits();
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(MockMvcRequestBuilders.get("/api/persons/{id}", created.getId()))
+                    .andExpect(status().isOk());
+        }
+        assertThat(personRegionHits()).isGreaterThan(before);
+
+        // once cached, reading the person doesn't touch the database at all
+        long statements = sqlStatements("GET", "/api/persons/{id}");
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons/{id}", created.getId()))
+                .andExpect(status().isOk());
+        assertThat(sqlStatements("GET", "/api/persons/{id}")).isEqualTo(statements);
+    }
+
+    private long personRegionHits() throws Exception {
+        MvcResult stats = mockMvc.perform(MockMvcRequestBuilders.get("/api/cache/stats"))
+                .andExpect(status().isOk())
+                .andReturn();
+        for (JsonNode region : objectMapper.readTree(stats.getResponse().getContentAsString())) {
+            if (region.get("region").asText().equals("com.example.personcrud.model.Person")) {
+                return region.get("hitCount").asLong();
+            }
+        }
+        throw new AssertionError("Person cache region not found");
+    }
+
+    @Test
+    void testConditionalGetAndIfMatch() throws Exception {
+        PersonDto dto = new PersonDto(null, "Etag", "Person", "etag.person@example.com");
+        MvcResult post = mockMvc.perform(MockMvcRequestBuilders.post("/api/persons")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        PersonDto created = objectMapper.readValue(post.getResponse().getContentAsString(), PersonDto.class);
+        String etag = post.getResponse().getHeader("ETag");
+        assertThat(etag).isNotNull();
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons/{id}", created.getId())
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        String listEtag = mockMvc.perform(MockMvcRequestBuilders.get("/api/persons"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons").header("If-None-Match", listEtag))
+                .andExpect(status().isNotModified());
+
+        created.setFirstName("Etagged");
+        String newEtag = mockMvc.perform(MockMvcRequestBuilders.put("/api/persons/{id}", created.getId())
+                        .header("If-Match", etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(created)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertThat(newEtag).isNotEqualTo(etag);
+
+        // a second writer still holding the old ETag is rejected
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/persons/{id}", created.getId())
+                        .header("If-Match", etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(created)))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons").header("If-None-Match", listEtag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testRequestServiceAndPoolMetrics() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons"))
+                .andExpect(status().isOk());
+
+        DistributionSummary sql = meterRegistry.find("http.server.requests.sql")
+                .tags("method", "GET", "uri", "/api/persons").summary();
+        assertThat(sql).isNotNull();
+        assertThat(sql.count()).isPositive();
+        assertThat(meterRegistry.find("service.method").tags("class", "PersonService").timers()).isNotEmpty();
+        assertThat(meterRegistry.find("hikaricp.connections.active").gauge()).isNotNull();
+        assertThat(meterRegistry.find("cache.gets").tags("cache", "com.example.personcrud.model.Person").meters()).isNotEmpty();
+
+        // timing can be switched off at runtime through the actuator
+        mockMvc.perform(MockMvcRequestBuilders.post("/actuator/servicetiming")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"enabled\": false}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.enabled").value(false));
+        try {
+            long before = personServiceCalls();
+            mockMvc.perform(MockMvcRequestBuilders.get("/api/persons"))
+                    .andExpect(status().isOk());
+            assertThat(personServiceCalls()).isEqualTo(before);
+        } finally {
+            mockMvc.perform(MockMvcRequestBuilders.post("/actuator/servicetiming")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"enabled\": true}"));
+        }
+    }
+
+    // SQL statements run so far by requests to one route, from the per-request SQL metric
+    private long sqlStatements(String method, String uri) {
+        DistributionSummary summary = meterRegistry.find("http.server.requests.sql").tags("method", method, "uri", uri).summary();
+        return summary == null ? 0 : (long) summary.totalAmount();
+    }
+
+    private long personServiceCalls() {
+        return meterRegistry.find("service.method").tags("class", "PersonService").timers().stream()
+                .mapToLong(Timer::count).sum();
+    }
 }
@@ -0,0 +1,164 @@
+package com.example.personcrud;
+
+import com.example.personcrud.dto.PersonDto;
+import com.example.personcrud.repository.PersonRepository;
+import com.example.personcrud.replication.ReplicatedDataSources;
+import com.example.personcrud.replication.Replica;
+import com.example.personcrud.replication.ScriptReplicator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:replicatests;DB_CLOSE_DELAY=-1",
+        "app.replicas.enabled=true",
+        "app.replicas.urls=jdbc:h2:mem:replicatests1;DB_CLOSE_DELAY=-1,jdbc:h2:mem:replicatests2;DB_CLOSE_DELAY=-1",
+        // synced by hand so the tests control how far behind the replicas are
+        "app.replicas.stand-in-interval=0s"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ReplicaRoutingTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ScriptReplicator replicator;
+
+    @Autowired
+    private ReplicatedDataSources dataSources;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void sync() {
+        replicator.syncNow();
+    }
+
+    @Test
+    void testReadsFollowReplicasWithReadYourWrites() throws Exception {
+        PersonDto dto = new PersonDto(null, "Replica", "Quokkason", "replica.quokkason@example.com");
+        MvcResult post = mockMvc.perform(MockMvcRequestBuilders.post("/api/persons")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isCreated())
+                .andExpect(cookie().exists("primary-until"))
+                .andReturn();
+        Cookie sticky = post.getResponse().getCookie("primary-until");
+
+        // the replicas have not seen the insert yet
+        double replicaReads = routed("replica-1") + routed("replica-2");
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons/search").param("q", "quokkason"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items").isEmpty());
+        assertThat(routed("replica-1") + routed("replica-2")).isGreaterThan(replicaReads);
+
+        // the writer itself is pinned to the primary
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons/search").param("q", "quokkason").cookie(sticky))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].lastName").value("Quokkason"));
+
+        replicator.syncNow();
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons/search").param("q", "quokkason"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].lastName").value("Quokkason"));
+    }
+
+    @Test
+    void testReplicaReadsStayOutOfTheQueryCache() throws Exception {
+        MvcResult post = mockMvc.perform(MockMvcRequestBuilders.post("/api/persons")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new PersonDto(null, "Cached", "Numbatova", "cached.numbatova@example.com"))))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Cookie sticky = post.getResponse().getCookie("primary-until");
+        // within max-lag, yet without the insert
+        for (Replica replica : dataSources.getReplicas()) {
+            replica.markSynced(System.currentTimeMillis());
+        }
+
+        // another client reads the cacheable last-name query from a replica that has not seen the insert
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons/search").param("lastName", "Numbatova"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isEmpty());
+
+        // the writer's pinned read must not be answered with that stale result
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons/search").param("lastName", "Numbatova").cookie(sticky))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].lastName").value("Numbatova"));
+    }
+
+    @Test
+    void testLaggingReplicasAreSkipped() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/persons")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new PersonDto(null, "Lagging", "Wombatsen", "lagging.wombatsen@example.com"))))
+                .andExpect(status().isCreated());
+        for (Replica replica : dataSources.getReplicas()) {
+            replica.markSynced(System.currentTimeMillis() - 60_000);
+        }
+
+        double primaryReads = routed("primary");
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/persons/search").param("q", "wombatsen"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].lastName").value("Wombatsen"));
+        assertThat(routed("primary")).isGreaterThan(primaryReads);
+    }
+
+    @Test
+    void testSyncWaitsForReadersOnTheReplica() throws Exception {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        CompletableFuture<Void> sync = readOnly.execute(status -> {
+            double replicaReads = routed("replica-1") + routed("replica-2");
+            long count = personRepository.count();
+            assertThat(routed("replica-1") + routed("replica-2")).isGreaterThan(replicaReads);
+
+            CompletableFuture<Void> running = CompletableFuture.runAsync(replicator::syncNow);
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            // the replica this transaction reads from is not dropped under it
+            assertThat(running).isNotDone();
+            assertThat(personRepository.count()).isEqualTo(count);
+            return running;
+        });
+        sync.get(15, TimeUnit.SECONDS);
+    }
+
+    private double routed(String target) {
+        var counter = meterRegistry.find("datasource.routing").tag("target", target).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}